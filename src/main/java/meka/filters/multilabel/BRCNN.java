@@ -18,12 +18,15 @@
  */
 package meka.filters.multilabel;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.Vector;
 
-import weka.core.Instance;
 import weka.core.Instances;
-import weka.core.neighboursearch.LinearNNSearch;
-import weka.core.neighboursearch.NearestNeighbourSearch;
+import weka.core.Option;
+import weka.core.Utils;
 
 /**
  * CNN instance selection for ML by means of binary relevance.<br>
@@ -32,6 +35,7 @@ import weka.core.neighboursearch.NearestNeighbourSearch;
  * Valid options are:
  * <p>
  * number of nearest neighbours <br>
+ * batch passes checked in parallel <br>
  * alpha for fitness function <br>
  * percentage of instances for error computation (in fitness function) <br>
  * 
@@ -42,6 +46,77 @@ public class BRCNN extends BRIS {
 
 	private static final long serialVersionUID = 1974167341692127687L;
 
+	/**
+	 * Whether every pass is checked at once (in parallel) or not.
+	 */
+	protected boolean m_Batch = false;
+
+	public String batchTipText() {
+		return "Batch passes: every pass is checked in parallel against the reduced set, then "
+		     + "the misclassified instances are added in order, skipping the ones absorbed by "
+		     + "the instances added before. The results differ slightly from the sequential CNN.";
+	}
+
+	public void setBatch (boolean batch) {
+		m_Batch = batch;
+	}
+
+	public boolean getBatch () {
+
+		return m_Batch;
+	}
+
+	/**
+	 * Returns an enumeration describing the available options.
+	 * 
+	 * @return an enumeration of all the available options.
+	 */
+	public Enumeration<Option> listOptions() {
+		ArrayList<Option> options = new ArrayList<Option>(1);
+
+		options.add(new Option("\tBatch passes, checked in parallel. The results differ\n"
+		                     + "\tslightly from the default sequential CNN.", "W", 0, "-W"));
+
+		Enumeration<Option> enu = super.listOptions();
+
+		while (enu.hasMoreElements())
+			options.add(enu.nextElement());
+
+		return Collections.enumeration(options);
+	}
+
+	/**
+	 * Parses a given list of options.
+	 * 
+	 * @param options
+	 *            the list of options as an array of strings.
+	 * @throws Exception
+	 *             if an option is not supported.
+	 */
+	public void setOptions(String[] options) throws Exception {
+		setBatch(Utils.getFlag('W', options));
+
+		super.setOptions(options);
+	}
+
+	/**
+	 * Gets the current settings of the Classifier.
+	 * 
+	 * @return an array of strings suitable for passing to setOptions
+	 */
+	public String[] getOptions() {
+		Vector<String> result = new Vector<String>();
+		String[] options = super.getOptions();
+
+		for (int i = 0; i < options.length; i++)
+			result.add(options[i]);
+
+		if (getBatch())
+			result.add("-W");
+
+		return result.toArray(new String[result.size()]);
+	}
+
 	@Override
 	public String globalInfo() {
 		
@@ -50,51 +125,198 @@ public class BRCNN extends BRIS {
 
 	@Override
 	protected void applyIS(Instances instances, int[] remove) throws Exception {
-		NearestNeighbourSearch nnSearch;
-		Instances reducedSet = new Instances(instances, instances.numInstances() / 10);
-		Instance inst;
-		Vector<Double> classSelected = new Vector<Double>(instances.classAttribute().numValues());
-		boolean[] selected = new boolean[instances.numInstances()];
+		applyIS(new SingleLabelView(instances, normalizeDistances()), remove);
+	}
+
+	@Override
+	protected void applyIS(SingleLabelView view, int[] remove) throws Exception {
+		boolean[] selected = m_Batch ? batchCondense(view, m_Threads) : condense(view, m_Threads);
 		
-		for (int i = 0; i < remove.length; i++)
-			selected[i] = false;
+		// Accumulate votes in remove.
+		for (int i = 0; i < view.numInstances(); i++)
+			if (!selected[i])
+				remove[i]++;
+	}
+
+	/**
+	 * Applies CNN over a view. It starts with an instance of each class and 
+	 * adds the first instance misclassified by the reduced set until all of 
+	 * them are well classified.<br>
+	 * Every instance keeps its nearest prototype, so adding a prototype only 
+	 * needs its distance to the instances, and the first misclassified 
+	 * instance is found in the same pass. The selection is the same as 
+	 * restarting the scan after every addition. The distances to the seeds 
+	 * are computed in parallel.
+	 * 
+	 * @param view View of the data set.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @return Instances selected by CNN.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected static boolean[] condense(SingleLabelView view, int threads) throws Exception {
+		int numInstances = view.numInstances();
+		boolean[] selected = new boolean[numInstances];
+		int[] classes = view.classes();
+		int[] seeds = classSeeds(classes, view.numClasses());
+		int[] nearest = new int[numInstances];
+		double[] nearestDist = new double[numInstances];
+		int next = -1;
+		
+		for (int i = 0; i < numInstances; i++) {
+			nearest[i] = -1;
+			nearestDist[i] = Double.MAX_VALUE;
+		}
 		
 		// Starts with an instance of each class.
-		for (int i = 0; i < instances.numInstances(); i++) {
-			inst = instances.instance(i);
-			
-			// If any instance of the current's class has been already selected
-			if (!classSelected.contains(inst.classValue())) {
-				selected[i] = true;
-				reducedSet.add(inst);
-				classSelected.add(inst.classValue());
+		for (int i : seeds)
+			selected[i] = true;
+		
+		BRFCNN.updateNearest(view, seeds, selected, nearest, nearestDist, threads);
+		
+		for (int i = 0; i < numInstances && next == -1; i++)
+			if (!selected[i] && classes[nearest[i]] != classes[i])
+				next = i;
+		
+		// Run CNN.
+		while (next != -1) {
+			selected[next] = true;
+			next = addPrototype(view, next, selected, nearest, nearestDist);
+		}
+		
+		return selected;
+	}
+
+	/**
+	 * Returns the first instance of each class, in index order. The classes
+	 * already seen are kept in a class-indexed array, so it is linear even 
+	 * with thousands of classes (labelsets).
+	 * 
+	 * @param classes Class of every instance.
+	 * @param numClasses Number of classes.
+	 * @return Indexes of the seeds.
+	 */
+	protected static int[] classSeeds(int[] classes, int numClasses) {
+		boolean[] classSelected = new boolean[numClasses];
+		int[] seeds = new int[numClasses];
+		int numSeeds = 0;
+		
+		// Stop if all classes have been already selected
+		for (int i = 0; i < classes.length && numSeeds < numClasses; i++) {
+			if (!classSelected[classes[i]]) {
+				classSelected[classes[i]] = true;
+				seeds[numSeeds++] = i;
 			}
-			
-			// Stop if all classes have been already selected
-			if (classSelected.size() == instances.classAttribute().numValues())
-				i = instances.numInstances();
 		}
 		
-		// Init the NN search.
-		nnSearch = new LinearNNSearch(reducedSet);
+		return Arrays.copyOf(seeds, numSeeds);
+	}
+
+	/**
+	 * Applies CNN over a view by batch passes. Every pass finds the instances
+	 * misclassified by the reduced set, which are known from their nearest 
+	 * prototypes, and adds them in index order. An instance that is well 
+	 * classified by the ones added before in the same pass is skipped. The 
+	 * nearest prototypes are then updated with the new ones in parallel.<br>
+	 * The reduced set is consistent, as in CNN, and it is the same for any
+	 * number of threads.
+	 * 
+	 * @param view View of the data set.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @return Instances selected by CNN.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected static boolean[] batchCondense(SingleLabelView view, int threads) 
+	                                            throws Exception {
+		int numInstances = view.numInstances();
+		boolean[] selected = new boolean[numInstances];
+		int[] classes = view.classes();
+		int[] nearest = new int[numInstances];
+		double[] nearestDist = new double[numInstances];
+		int[] misclassified = new int[numInstances];
+		int[] added = new int[numInstances];
+		int numMisclassified, numAdded = 0, near;
+		double minDist, dist;
 		
-		// Run CNN.
-		for (int i = 0; i < instances.numInstances(); i++) {
-			if (!selected[i]) {
-				inst = instances.instance(i);
-				if (nnSearch.nearestNeighbour(inst).classValue() != inst.classValue()) {
-					selected[i] = true;
-					reducedSet.add(inst);
-					i = 0;
-					nnSearch = new LinearNNSearch(reducedSet);
+		for (int i = 0; i < numInstances; i++) {
+			nearest[i] = -1;
+			nearestDist[i] = Double.MAX_VALUE;
+		}
+		
+		// Starts with an instance of each class.
+		for (int i : classSeeds(classes, view.numClasses())) {
+			selected[i] = true;
+			added[numAdded++] = i;
+		}
+		
+		while (numAdded > 0) {
+			BRFCNN.updateNearest(view, Arrays.copyOf(added, numAdded), selected, 
+			                     nearest, nearestDist, threads);
+			
+			numMisclassified = 0;
+			
+			for (int i = 0; i < numInstances; i++)
+				if (!selected[i] && classes[nearest[i]] != classes[i])
+					misclassified[numMisclassified++] = i;
+			
+			numAdded = 0;
+			
+			// Add them in order, unless they are absorbed by the new prototypes
+			for (int m = 0; m < numMisclassified; m++) {
+				near = nearest[misclassified[m]];
+				minDist = nearestDist[misclassified[m]];
+				
+				for (int a = 0; a < numAdded; a++) {
+					dist = view.distance(misclassified[m], added[a]);
+					
+					if (dist < minDist) {
+						minDist = dist;
+						near = added[a];
+					}
+				}
+				
+				if (classes[near] != classes[misclassified[m]]) {
+					selected[misclassified[m]] = true;
+					added[numAdded++] = misclassified[m];
 				}
 			}
 		}
 		
-		// Accumulate votes in remove.
-		for (int i = 0; i < instances.numInstances(); i++)
-			if (!selected[i])
-				remove[i]++;
+		return selected;
 	}
 
+	/**
+	 * Updates the nearest prototype of the unselected instances with a new 
+	 * prototype. As in a linear search over the reduced set, a tie keeps the 
+	 * older prototype.
+	 * 
+	 * @param view View of the data set.
+	 * @param prototype Index of the new prototype.
+	 * @param selected Instances in the reduced set.
+	 * @param nearest Nearest prototype of every instance.
+	 * @param nearestDist Distance to the nearest prototype of every instance.
+	 * @return First instance misclassified by the reduced set, -1 if none.
+	 */
+	protected static int addPrototype(SingleLabelView view, int prototype, boolean[] selected,
+	                                  int[] nearest, double[] nearestDist) {
+		int[] classes = view.classes();
+		int first = -1;
+		double dist;
+		
+		for (int i = 0; i < nearest.length; i++) {
+			if (selected[i])
+				continue;
+			
+			dist = view.distance(i, prototype);
+			
+			if (dist < nearestDist[i]) {
+				nearestDist[i] = dist;
+				nearest[i] = prototype;
+			}
+			
+			if (first == -1 && classes[nearest[i]] != classes[i])
+				first = i;
+		}
+		
+		return first;
+	}
 }
@@ -23,12 +23,9 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Vector;
 
-import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
 import weka.core.Utils;
-import weka.core.neighboursearch.LinearNNSearch;
-import weka.core.neighboursearch.NearestNeighbourSearch;
 
 /**
  * ENN instance selection for ML by means of binary relevance.<br>
@@ -37,8 +34,12 @@ import weka.core.neighboursearch.NearestNeighbourSearch;
  * Valid options are:
  * <p>
  * number of nearest neighbours <br>
+ * batch (Wilson) editing instead of sequential editing <br>
  * alpha for fitness function <br>
  * percentage of instances for error computation (in fitness function) <br>
+ * <p>
+ * The votes and selections of batch editing (-W) for several values of k
+ * can be obtained at once with sweepVotes and sweepSelections.
  * 
  * @author Álvar Arnaiz-González
  * @version 20160929
@@ -65,16 +66,39 @@ public class BRENN extends BRIS {
 		return m_K;
 	}
 
+	/**
+	 * Whether all the instances are edited at once (batch) or not (sequential).
+	 */
+	protected boolean m_Batch = false;
+
+	public String batchTipText() {
+		return "Batch (Wilson) editing: every instance is judged against the whole data set "
+		     + "and the misclassified ones are removed at once. The neighbours are computed "
+		     + "in parallel. The results differ from the sequential editing.";
+	}
+
+	public void setBatch (boolean batch) {
+		m_Batch = batch;
+	}
+
+	public boolean getBatch () {
+
+		return m_Batch;
+	}
+
 	/**
 	 * Returns an enumeration describing the available options.
 	 * 
 	 * @return an enumeration of all the available options.
 	 */
 	public Enumeration<Option> listOptions() {
-		ArrayList<Option> options = new ArrayList<Option>(1);
+		ArrayList<Option> options = new ArrayList<Option>(2);
 
 		options.add(new Option("\tNumber of nearest neighbours.", "K", 0, "-K"));
 
+		options.add(new Option("\tBatch (Wilson) editing, computed in parallel. The results\n"
+		                     + "\tdiffer from the default sequential editing.", "W", 0, "-W"));
+
 		Enumeration<Option> enu = super.listOptions();
 
 		while (enu.hasMoreElements())
@@ -101,6 +125,8 @@ public class BRENN extends BRIS {
 		else
 			setK(3);
 
+		setBatch(Utils.getFlag('W', options));
+
 		super.setOptions(options);
 	}
 
@@ -119,6 +145,9 @@ public class BRENN extends BRIS {
 		result.add("-K");
 		result.add("" + getK());
 
+		if (getBatch())
+			result.add("-W");
+
 		return result.toArray(new String[result.size()]);
 	}
 
@@ -130,46 +159,217 @@ public class BRENN extends BRIS {
 
 	@Override
 	protected void applyIS(Instances instances, int[] remove) throws Exception {
-		NearestNeighbourSearch nnSearch = new LinearNNSearch(instances);
-		Instances nn;
+		applyIS(new SingleLabelView(instances, normalizeDistances()), remove);
+	}
+
+	@Override
+	protected void applyIS(SingleLabelView view, int[] remove) throws Exception {
+		boolean[] removed;
+
+		if (m_Batch)
+			removed = batchEdit(neighbourGraph(view, m_K), view.classes(), view.numClasses());
+		else
+			removed = edit(view, m_K);
+
+		for (int i = 0; i < removed.length; i++)
+			if (removed[i])
+				remove[i]++;
+	}
+
+	/**
+	 * Applies ENN over a view, from the last instance to the first one. The
+	 * neighbour list and the vote counters are reused, so that no objects are
+	 * created in the edit loop.
+	 * 
+	 * @param view View of the data set.
+	 * @param k Number of nearest neighbours.
+	 * @return Instances removed by ENN.
+	 */
+	protected static boolean[] edit (SingleLabelView view, int k) {
+		boolean[] removed = new boolean[view.numInstances()];
+		Neighbours nn = new Neighbours(k);
+		int[] classes = view.classes();
+		int[] counts = new int[view.numClasses()];
 		
-		for (int i = instances.numInstances() - 1; i >= 0; i--) {
-			nn = nnSearch.kNearestNeighbours(instances.instance(i), m_K);
+		for (int i = view.numInstances() - 1; i >= 0; i--) {
+			view.kNearestNeighbours(i, k, removed, nn);
 			
-			if (isMisclassified (instances.instance(i), nn)) {
-				remove[i]++;
-				instances.remove(i);
-				nnSearch = new LinearNNSearch(instances);
+			if (isMisclassified (classes, i, nn.ids(), nn.size(), counts))
+				removed[i] = true;
+		}
+		
+		return removed;
+	}
+
+	/**
+	 * Applies batch (Wilson) ENN: every instance is checked against its 
+	 * neighbours in the whole data set and all the misclassified ones are 
+	 * removed.
+	 * 
+	 * @param graph Neighbour graph of the data set.
+	 * @param classes Class of every instance.
+	 * @param numClasses Number of classes.
+	 * @return Instances removed by ENN.
+	 */
+	protected static boolean[] batchEdit (NeighbourGraph graph, int[] classes, int numClasses) {
+		boolean[] removed = new boolean[classes.length];
+		int[] counts = new int[numClasses];
+		int[] nn;
+		
+		for (int i = 0; i < classes.length; i++) {
+			nn = graph.neighbours(i);
+			removed[i] = isMisclassified (classes, i, nn, nn.length, counts);
+		}
+		
+		return removed;
+	}
+
+	/**
+	 * Computes the votes of batch ENN for every k from 1 to maxK. The maxK
+	 * nearest neighbours are computed once and every k uses a prefix of them,
+	 * so the cost is almost the one of a single run. Sequential editing can't
+	 * be swept this way, its neighbours depend on the previous removals: the
+	 * votes are the ones of runs with -W, whatever the batch option of the
+	 * filter, and don't match the ones of the default sequential -K k runs.
+	 * 
+	 * @param instances Multi-label data set.
+	 * @param maxK Maximum number of nearest neighbours.
+	 * @return Votes for removal of every instance, one array per k (k-1).
+	 * @throws Exception If something goes wrong.
+	 */
+	public int[][] sweepVotes (Instances instances, int maxK) throws Exception {
+		int numLabels = instances.classIndex();
+		int[] multiplicity = labelMultiplicities(instances);
+		int[][] votes = new int[maxK][instances.numInstances()];
+		FeatureSpace space = new FeatureSpace(instances, numLabels, normalizeDistances());
+		NeighbourGraph graph = null;
+		SingleLabelView view;
+		boolean[][] removed;
+		
+		// In dependent BR there is a graph per label
+		if (getDependent())
+			space.cacheDistances();
+		
+		for (int j = 0; j < numLabels; j++) {
+			if (multiplicity[j] == 0)
+				continue;
+			
+			view = new SingleLabelView(space, j, getDependent());
+			
+			if (graph == null || getDependent())
+				graph = new NeighbourGraph(view, maxK, m_Threads);
+			
+			removed = batchSweep(graph, view.classes(), view.numClasses());
+			
+			for (int k = 0; k < maxK; k++)
+				for (int i = 0; i < removed[k].length; i++)
+					if (removed[k][i])
+						votes[k][i] += multiplicity[j];
+		}
+		
+		return votes;
+	}
+
+	/**
+	 * Computes the selection of batch ENN for every k from 1 to maxK, the 
+	 * threshold of every k is chosen as in process. As in sweepVotes, the
+	 * selections are the ones of runs with -W and don't match the ones of
+	 * the default sequential -K k runs.
+	 * 
+	 * @param instances Multi-label data set.
+	 * @param maxK Maximum number of nearest neighbours.
+	 * @return Selected instances, one mask per k (k-1).
+	 * @throws Exception If something goes wrong.
+	 */
+	public boolean[][] sweepSelections (Instances instances, int maxK) throws Exception {
+		int[][] votes = sweepVotes(instances, maxK);
+		boolean[][] selected = new boolean[maxK][instances.numInstances()];
+		int threshold;
+		
+		for (int k = 0; k < maxK; k++) {
+			threshold = computeThreshold(instances, votes[k]);
+			
+			for (int i = 0; i < votes[k].length; i++)
+				selected[k][i] = votes[k][i] < threshold;
+		}
+		
+		return selected;
+	}
+
+	/**
+	 * Applies batch ENN for every k from 1 to graph.k(). The votes of the
+	 * neighbours of every instance are counted incrementally as k grows.
+	 * 
+	 * @param graph Neighbour graph of the data set.
+	 * @param classes Class of every instance.
+	 * @param numClasses Number of classes.
+	 * @return Instances removed by ENN, one mask per k (k-1).
+	 */
+	protected static boolean[][] batchSweep (NeighbourGraph graph, int[] classes, int numClasses) {
+		boolean[][] removed = new boolean[graph.k()][classes.length];
+		int[] counts = new int[numClasses];
+		int[] nn;
+		int max, pred, pos, c;
+		
+		for (int i = 0; i < classes.length; i++) {
+			nn = graph.neighbours(i);
+			max = 0;
+			pred = -1;
+			pos = 0;
+			
+			for (int k = 1; k <= graph.k(); k++) {
+				// Same vote as isMisclassified, the lowest class wins the ties
+				for (int end = graph.numNeighbours(i, k); pos < end; pos++) {
+					c = classes[nn[pos]];
+					
+					if (++counts[c] > max || (counts[c] == max && c < pred)) {
+						pred = c;
+						max = counts[c];
+					}
+				}
+				
+				removed[k - 1][i] = classes[i] != pred;
 			}
+			
+			for (int j = 0; j < pos; j++)
+				counts[classes[nn[j]]] = 0;
 		}
+		
+		return removed;
 	}
 
 	/**
-	 * Returns whether or not the target instance is misclassified by the
-	 * instances of nn.
+	 * Returns whether or not the target instance is misclassified by its 
+	 * neighbours. The prediction is the most voted class, the lowest one in
+	 * case of tie.<br>
+	 * Only the counters of the neighbours' classes are touched, they are left
+	 * at zero, hence the same array can be reused for every instance.
 	 * 
-	 * @param target Instance to check.
-	 * @param nn Instances (neighbours) of target.
+	 * @param classes Class of every instance.
+	 * @param target Index of the instance to check.
+	 * @param nn Indexes of the neighbours of target.
+	 * @param numNN Number of neighbours in nn.
+	 * @param counts Vote counters, one per class, all of them zero.
 	 * @return True if target is misclassified using nn, false otherwise.
 	 */
-	protected static boolean isMisclassified (Instance target, Instances nn) {
-		int[] nnClass = new int[target.numClasses()];
+	protected static boolean isMisclassified (int[] classes, int target, 
+	                                             int[] nn, int numNN, int[] counts) {
 		int max = 0;
 		int pred = -1;
+		int c;
 		
-		for (Instance inst : nn)
-			nnClass[(int)inst.classValue()]++;
-		
-		for (int i = 0; i < nnClass.length; i++) {
-			if (nnClass[i] > max) {
-				pred = i;
-				max = nnClass[i];
+		for (int j = 0; j < numNN; j++) {
+			c = classes[nn[j]];
+			
+			if (++counts[c] > max || (counts[c] == max && c < pred)) {
+				pred = c;
+				max = counts[c];
 			}
 		}
 		
-		if (target.classValue() == pred)
-			return false;
+		for (int j = 0; j < numNN; j++)
+			counts[classes[nn[j]]] = 0;
 		
-		return true;
+		return classes[target] != pred;
 	}
 }
@@ -0,0 +1,172 @@
+/*
+ * BRFCNN.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain 
+ *     
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *     
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *     
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.Arrays;
+
+import weka.core.Instances;
+
+/**
+ * FCNN (fast condensed nearest neighbour) instance selection for ML by means
+ * of binary relevance.<br>
+ * The threshold is computed using a votation method like DIS.
+ * <p>
+ * It implements FCNN1 of F. Angiulli, "Fast Nearest Neighbor Condensation 
+ * for Large Data Sets Classification", IEEE TKDE 19(11), 2007. The consistent
+ * subset starts with the centroids of the classes and grows in batches: every
+ * prototype adds the nearest enemy of its Voronoi cell.
+ * <p>
+ * Valid options are:
+ * <p>
+ * alpha for fitness function <br>
+ * percentage of instances for error computation (in fitness function) <br>
+ * number of threads <br>
+ * 
+ * @version 20261018
+ */
+public class BRFCNN extends BRIS {
+
+	private static final long serialVersionUID = -5040931227630843551L;
+
+	@Override
+	public String globalInfo() {
+		
+		return "FCNN instance selection by using binary relevance (with voting).";
+	}
+
+	@Override
+	protected void applyIS(Instances instances, int[] remove) throws Exception {
+		applyIS(new SingleLabelView(instances, normalizeDistances()), remove);
+	}
+
+	@Override
+	protected void applyIS(SingleLabelView view, int[] remove) throws Exception {
+		boolean[] selected = fastCondense(view, m_Threads);
+		
+		// Accumulate votes in remove.
+		for (int i = 0; i < view.numInstances(); i++)
+			if (!selected[i])
+				remove[i]++;
+	}
+
+	/**
+	 * Applies FCNN1 over a view. Every instance keeps its nearest prototype, 
+	 * in each iteration it is only compared with the new prototypes (in 
+	 * parallel). The result is the same for any number of threads.
+	 * 
+	 * @param view View of the data set.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @return Instances selected by FCNN.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected static boolean[] fastCondense(final SingleLabelView view, int threads) 
+	                                           throws Exception {
+		final int numInstances = view.numInstances();
+		final boolean[] selected = new boolean[numInstances];
+		final int[] nearest = new int[numInstances];
+		final double[] nearestDist = new double[numInstances];
+		int[] classes = view.classes();
+		int[] rep = new int[numInstances];
+		double[] repDist = new double[numInstances];
+		int[] added = new int[numInstances];
+		int numAdded = 0;
+		int[] delta;
+		int p;
+		
+		Arrays.fill(nearest, -1);
+		Arrays.fill(nearestDist, Double.MAX_VALUE);
+		
+		// Starts with the centroid of each class.
+		for (int c : view.space().centroids(classes, view.numClasses()))
+			if (c != -1)
+				added[numAdded++] = c;
+		
+		while (numAdded > 0) {
+			delta = Arrays.copyOf(added, numAdded);
+			Arrays.sort(delta);
+			
+			for (int a : delta)
+				selected[a] = true;
+			
+			updateNearest(view, delta, selected, nearest, nearestDist, threads);
+			
+			// Nearest enemy in the Voronoi cell of every prototype
+			Arrays.fill(rep, -1);
+			Arrays.fill(repDist, Double.MAX_VALUE);
+			
+			for (int q = 0; q < numInstances; q++) {
+				if (selected[q])
+					continue;
+				
+				p = nearest[q];
+				
+				if (classes[q] != classes[p] && nearestDist[q] < repDist[p]) {
+					rep[p] = q;
+					repDist[p] = nearestDist[q];
+				}
+			}
+			
+			numAdded = 0;
+			
+			for (int s = 0; s < numInstances; s++)
+				if (rep[s] != -1)
+					added[numAdded++] = rep[s];
+		}
+		
+		return selected;
+	}
+
+	/**
+	 * Updates the nearest prototype of the unselected instances with a batch
+	 * of new prototypes, in parallel. A tie keeps the older prototype or the 
+	 * lower index.
+	 * 
+	 * @param view View of the data set.
+	 * @param delta New prototypes, sorted.
+	 * @param selected Instances in the subset.
+	 * @param nearest Nearest prototype of every instance.
+	 * @param nearestDist Distance to the nearest prototype of every instance.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected static void updateNearest(final SingleLabelView view, final int[] delta, 
+	                                    final boolean[] selected, final int[] nearest, 
+	                                    final double[] nearestDist, int threads) 
+	                                       throws Exception {
+		Parallel.forRange(0, nearest.length, threads, new Parallel.Range() {
+			@Override
+			public void run(int from, int to) {
+				double dist;
+				
+				for (int q = from; q < to; q++) {
+					if (selected[q])
+						continue;
+					
+					for (int p : delta) {
+						dist = view.distance(q, p);
+						
+						if (dist < nearestDist[q]) {
+							nearestDist[q] = dist;
+							nearest[q] = p;
+						}
+					}
+				}
+			}
+		});
+	}
+}
@@ -18,10 +18,15 @@
  */
 package meka.filters.multilabel;
 
+import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Vector;
 
 import meka.classifiers.multilabel.Evaluation;
@@ -33,6 +38,7 @@ import meka.core.Result;
 import weka.core.Instances;
 import weka.core.Option;
 import weka.core.Randomizable;
+import weka.core.SerializationHelper;
 import weka.core.Utils;
 import weka.filters.SimpleBatchFilter;
 
@@ -46,6 +52,11 @@ import weka.filters.SimpleBatchFilter;
  * alpha for fitness function <br>
  * percentage of instances for error computation (in fitness function) <br>
  * dependent binary relevance <br>
+ * random seed <br>
+ * checkpoint file of the votes and seconds between writes <br>
+ * time budget for the votes (wall-clock or CPU time) <br>
+ * number of shards, shared directory, local worker processes and timeout <br>
+ * number of threads <br>
  * 
  * @author Álvar Arnaiz-González
  * @version 20180330
@@ -74,6 +85,77 @@ public abstract class BRIS extends SimpleBatchFilter implements Randomizable {
 	 */
 	protected boolean m_Dependent = false;
 	
+	/**
+	 * File for the checkpoint of the votes, none if empty.
+	 */
+	protected String m_CheckpointFile = "";
+	
+	/**
+	 * Minimum time between two checkpoint writes (seconds).
+	 */
+	protected double m_CheckpointInterval = 60;
+	
+	/**
+	 * Checkpoint of the current process() call.
+	 */
+	protected transient VoteCheckpoint m_VoteCheckpoint;
+	
+	/**
+	 * Time budget for the votes (seconds), unlimited if not positive.
+	 */
+	protected double m_Budget = 0;
+	
+	/**
+	 * Whether the budget is CPU time or wall-clock time.
+	 */
+	protected boolean m_CPUBudget = false;
+	
+	/**
+	 * Number of shards of the votes, every one is computed by a worker process.
+	 */
+	protected int m_Shards = 1;
+	
+	/**
+	 * Directory shared with the worker processes, a temporary one if empty.
+	 */
+	protected String m_ShardDir = "";
+	
+	/**
+	 * Number of local worker processes, one per shard if negative.
+	 */
+	protected int m_LocalWorkers = -1;
+	
+	/**
+	 * Seconds the shard tasks can wait without any worker before the votes 
+	 * fail, no limit if not positive.
+	 */
+	protected double m_ShardTimeout = 600;
+	
+	/**
+	 * Number of threads, the global setting if not positive.
+	 */
+	protected int m_Threads = 0;
+	
+	/**
+	 * Neighbour graph shared by the labels of the current votes computation.
+	 */
+	protected transient NeighbourGraph m_Graph;
+	
+	/**
+	 * Start time of the budget (nanoseconds).
+	 */
+	protected transient long m_BudgetStart;
+	
+	/**
+	 * Units of work done since the budget started.
+	 */
+	protected transient int m_UnitsDone;
+	
+	/**
+	 * Whether the last votes were scaled from a partial run or not.
+	 */
+	protected transient boolean m_PartialVotes;
+	
 	public boolean getDependent() {
 		return m_Dependent;
 	}
@@ -114,19 +196,161 @@ public abstract class BRIS extends SimpleBatchFilter implements Randomizable {
 		return m_PropInstErr;
 	}
 
+	public void setCheckpointFile (String file) {
+		m_CheckpointFile = file;
+	}
+
+	public String getCheckpointFile () {
+		
+		return m_CheckpointFile;
+	}
+
+	public String checkpointFileTipText() {
+		return "File where the votes are periodically saved, a run is resumed from it. It is removed once all the votes are computed (empty: no checkpoint).";
+	}
+
+	public void setCheckpointInterval (double seconds) {
+		m_CheckpointInterval = seconds;
+	}
+
+	public double getCheckpointInterval () {
+		
+		return m_CheckpointInterval;
+	}
+
+	public String checkpointIntervalTipText() {
+		return "Minimum number of seconds between two checkpoint writes.";
+	}
+
+	public void setBudget (double seconds) {
+		m_Budget = seconds;
+	}
+
+	public double getBudget () {
+		
+		return m_Budget;
+	}
+
+	public String budgetTipText() {
+		return "Time budget for computing the votes in seconds, the labels are "
+		     + "processed by priority until it runs out (0: unlimited).";
+	}
+
+	public void setCPUBudget (boolean cpu) {
+		m_CPUBudget = cpu;
+	}
+
+	public boolean getCPUBudget () {
+		
+		return m_CPUBudget;
+	}
+
+	public String CPUBudgetTipText() {
+		return "Whether the time budget is CPU time or wall-clock time.";
+	}
+
+	public void setShards (int shards) {
+		m_Shards = shards;
+	}
+
+	public int getShards () {
+		
+		return m_Shards;
+	}
+
+	public String shardsTipText() {
+		return "Number of shards of the units of work (labels, partitions), each one "
+		     + "is computed by a worker process (1: no sharding).";
+	}
+
+	public void setShardDir (String dir) {
+		m_ShardDir = dir;
+	}
+
+	public String getShardDir () {
+		
+		return m_ShardDir;
+	}
+
+	public String shardDirTipText() {
+		return "Directory shared with the worker processes, workers on other hosts can "
+		     + "run VoteShard over it (empty: temporary directory).";
+	}
+
+	public void setLocalWorkers (int workers) {
+		m_LocalWorkers = workers;
+	}
+
+	public int getLocalWorkers () {
+		
+		return m_LocalWorkers;
+	}
+
+	public String localWorkersTipText() {
+		return "Number of local worker processes (negative: one per shard, 0: only remote workers).";
+	}
+
+	public void setShardTimeout (double seconds) {
+		m_ShardTimeout = seconds;
+	}
+
+	public double getShardTimeout () {
+		
+		return m_ShardTimeout;
+	}
+
+	public String shardTimeoutTipText() {
+		return "Seconds the pending shards can wait while no local worker is alive and no "
+		     + "remote worker takes or finishes a shard, then the votes fail (0: no limit).";
+	}
+
+	public void setThreads (int threads) {
+		m_Threads = threads;
+	}
+
+	public int getThreads () {
+		
+		return m_Threads;
+	}
+
+	public String threadsTipText() {
+		return "Number of threads (0: the " + Parallel.THREADS_PROPERTY 
+		     + " property or the number of processors).";
+	}
+
 	/**
 	 * Returns an enumeration describing the available options.
 	 * 
 	 * @return an enumeration of all the available options.
 	 */
 	public Enumeration<Option> listOptions() {
-		ArrayList<Option> options = new ArrayList<Option>(3);
+		ArrayList<Option> options = new ArrayList<Option>(13);
 
 		options.add(new Option("\tAlpha value.", "A", 0, "-A"));
 
 		options.add(new Option("\tProportion of instances for error computation.", "E", 0, "-E"));
 		
 		options.add(new Option("\tUse dependent binary relevance.", "D", 0, "-D"));
+		
+		options.add(new Option("\tRandom seed (default: 1).", "S", 1, "-S <seed>"));
+		
+		options.add(new Option("\tCheckpoint file of the votes (default: none).", "C", 1, "-C <file>"));
+		
+		options.add(new Option("\tSeconds between checkpoint writes (default: 60).", "F", 1, "-F <seconds>"));
+		
+		options.add(new Option("\tTime budget for the votes in seconds (default: 0, unlimited).", "B", 1, "-B <seconds>"));
+		
+		options.add(new Option("\tThe time budget is CPU time instead of wall-clock time.", "U", 0, "-U"));
+		
+		options.add(new Option("\tNumber of shards computed by worker processes (default: 1).", "J", 1, "-J <shards>"));
+		
+		options.add(new Option("\tDirectory shared with the workers (default: temporary).", "H", 1, "-H <dir>"));
+		
+		options.add(new Option("\tNumber of local workers (default: one per shard).", "L", 1, "-L <workers>"));
+		
+		options.add(new Option("\tSeconds the shards can wait without workers (default: 600, 0: no limit).", "Q", 1, "-Q <seconds>"));
+		
+		options.add(new Option("\tNumber of threads (default: 0, global setting).", "T", 1, "-T <threads>"));
 
 		Enumeration<Option> enu = super.listOptions();
 
@@ -163,6 +387,63 @@ public abstract class BRIS extends SimpleBatchFilter implements Randomizable {
 		
 		setDependent(Utils.getFlag('D', options));
 		
+		tmpStr = Utils.getOption('S', options);
+
+		if (tmpStr.length() > 0)
+			setSeed(Integer.parseInt(tmpStr));
+		else
+			setSeed(1);
+		
+		setCheckpointFile(Utils.getOption('C', options));
+		
+		tmpStr = Utils.getOption('F', options);
+
+		if (tmpStr.length() > 0)
+			setCheckpointInterval(Double.parseDouble(tmpStr));
+		else
+			setCheckpointInterval(60);
+		
+		tmpStr = Utils.getOption('B', options);
+
+		if (tmpStr.length() > 0)
+			setBudget(Double.parseDouble(tmpStr));
+		else
+			setBudget(0);
+		
+		setCPUBudget(Utils.getFlag('U', options));
+		
+		tmpStr = Utils.getOption('J', options);
+
+		if (tmpStr.length() > 0)
+			setShards(Integer.parseInt(tmpStr));
+		else
+			setShards(1);
+		
+		setShardDir(Utils.getOption('H', options));
+		
+		tmpStr = Utils.getOption('L', options);
+
+		if (tmpStr.length() > 0)
+			setLocalWorkers(Integer.parseInt(tmpStr));
+		else
+			setLocalWorkers(-1);
+		
+		tmpStr = Utils.getOption('Q', options);
+
+		if (tmpStr.length() > 0)
+			setShardTimeout(Double.parseDouble(tmpStr));
+		else
+			setShardTimeout(600);
+		
+		tmpStr = Utils.getOption('T', options);
+
+		if (tmpStr.length() > 0)
+			setThreads(Integer.parseInt(tmpStr));
+		else
+			setThreads(0);
+		
+		checkShardedOptions();
+		
 		super.setOptions(options);
 	}
 
@@ -187,6 +468,46 @@ public abstract class BRIS extends SimpleBatchFilter implements Randomizable {
 		if (getDependent())
 			result.add("-D");
 
+		result.add("-S");
+		result.add("" + getSeed());
+
+		if (getCheckpointFile().length() > 0) {
+			result.add("-C");
+			result.add(getCheckpointFile());
+
+			result.add("-F");
+			result.add("" + getCheckpointInterval());
+		}
+
+		if (getBudget() > 0) {
+			result.add("-B");
+			result.add("" + getBudget());
+
+			if (getCPUBudget())
+				result.add("-U");
+		}
+
+		if (getShards() > 1) {
+			result.add("-J");
+			result.add("" + getShards());
+
+			if (getShardDir().length() > 0) {
+				result.add("-H");
+				result.add(getShardDir());
+			}
+
+			result.add("-L");
+			result.add("" + getLocalWorkers());
+
+			result.add("-Q");
+			result.add("" + getShardTimeout());
+		}
+
+		if (getThreads() > 0) {
+			result.add("-T");
+			result.add("" + getThreads());
+		}
+
 		return result.toArray(new String[result.size()]);
 	}
 
@@ -204,7 +525,8 @@ public abstract class BRIS extends SimpleBatchFilter implements Randomizable {
 
 	@Override
 	protected Instances process(Instances instances) throws Exception {
-		Instances result = new Instances(instances, instances.numInstances());
+		Instances result;
+		BitSet keep;
 		int[] remove = new int[instances.numInstances()];
 		int threshold;
 		
@@ -225,47 +547,693 @@ public abstract class BRIS extends SimpleBatchFilter implements Randomizable {
 		// Compute the best threshold
 		threshold = computeThreshold (instances, remove);
 		
-		// Add the instances to result.
-		for (int i = 1; i < instances.numInstances(); i++)
+		// Mark the instances to keep.
+		keep = new BitSet(instances.numInstances());
+
+		for (int i = 0; i < instances.numInstances(); i++)
 			if (remove[i] < threshold)
-				result.add(instances.instance(i));
+				keep.set(i);
+
+		// Add the instances to result in a single pass.
+		result = new Instances(instances, keep.cardinality());
+
+		for (int i = keep.nextSetBit(0); i >= 0; i = keep.nextSetBit(i + 1))
+			result.add(instances.instance(i));
+		
+		// The checkpoint is no longer needed once all the work is done, a 
+		// partial run (time budget) is kept in order to resume it
+		if (m_VoteCheckpoint != null) {
+			if (!partialVotes())
+				m_VoteCheckpoint.finish();
+			else if (getDebug())
+				System.out.println("Votes are partial, checkpoint kept in " + m_CheckpointFile);
+			
+			m_VoteCheckpoint = null;
+		}
 		
 		return result;
 	}
 	
 	/**
-	 * Computes the votes using binary relevance ENN.
+	 * Computes the votes. The units of work (the labels) can be sharded 
+	 * across several worker processes.
 	 * 
 	 * @param instances Instances to filter.
 	 * @param remove Array with votes for removal.
-	 * @param numLabels Number of labels
 	 * @throws Exception If something goes wrong.
 	 */
 	protected void computeVotes(Instances instances, int[] remove) 
 	                        throws Exception {
-		Instances oneLblDataset;
+		int numUnits = numUnits(instances);
+		
+		if (m_Shards > 1 && numUnits > 1) {
+			checkShardedOptions();
+			computeShardedVotes(instances, remove, numUnits);
+		}
+		else
+			computeVotes(instances, remove, 0, numUnits, 
+			             openCheckpoint(instances, remove, numUnits));
+	}
+	
+	/**
+	 * Checks that the options can be used with sharded votes. The checkpoint
+	 * file isn't supported, the workers checkpoint their partial votes in the
+	 * shard directory instead.
+	 * 
+	 * @throws Exception If the options can't be used together.
+	 */
+	protected void checkShardedOptions() throws Exception {
+		if (m_Shards > 1 && m_CheckpointFile.length() > 0)
+			throw new Exception("Sharded votes (-J) can't use a checkpoint file (-C), the "
+			                  + "workers resume from their partial votes in the shard directory (-H)");
+	}
+	
+	/**
+	 * Returns the number of units of work of computeVotes.
+	 * 
+	 * @param instances Instances to filter.
+	 * @return Number of labels.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected int numUnits(Instances instances) throws Exception {
+		
+		return instances.classIndex();
+	}
+	
+	/**
+	 * Computes the votes using binary relevance ENN. The IS method is applied 
+	 * once per distinct label column. The feature distances are shared by all 
+	 * the labels, in dependent BR the other labels are added to them.
+	 * 
+	 * @param instances Instances to filter.
+	 * @param remove Array with votes for removal.
+	 * @param from First label to process.
+	 * @param to Last label to process (exclusive).
+	 * @param checkpoint Checkpoint of the votes, can be null.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected void computeVotes(Instances instances, int[] remove, int from, int to,
+	                            VoteCheckpoint checkpoint) throws Exception {
 		int numLabels = instances.classIndex();
+		int[] multiplicity, votes = new int[remove.length];
+		int distinct = 0;
+		FeatureSpace space;
+		
+		// The setup (feature space, distance cache) is part of the budget
+		startBudget();
+		
+		multiplicity = labelMultiplicities(instances);
+		space = new FeatureSpace(instances, numLabels, normalizeDistances());
+		
+		for (int j = from; j < to; j++)
+			if (multiplicity[j] > 0)
+				distinct++;
+		
+		int[] order = labelOrder(instances, multiplicity);
+		int total = 0, processed = 0, j;
+		
+		// Feature distances are reused if there are several labels
+		if (distinct > 1)
+			space.cacheDistances();
+		
+		m_Graph = null;
 		
 		// BR
-		for(int j = 0; j < numLabels; j++) {
-			if (getDependent()) {
-				// Generate the dataset
-				oneLblDataset = new Instances(instances);
-				oneLblDataset.setClassIndex(j);
+		for(int l = 0; l < numLabels; l++) {
+			j = order[l];
+			
+			if (j < from || j >= to)
+				continue;
+			
+			total += multiplicity[j];
+			
+			// Constant columns, repetitions of a previous column and labels 
+			// restored from the checkpoint are skipped.
+			if (multiplicity[j] == 0)
+				continue;
+			
+			if (checkpoint != null && checkpoint.isDone(j)) {
+				processed += multiplicity[j];
+				continue;
+			}
+			
+			// Stop if there is no time for another label
+			if (budgetExhausted())
+				continue;
+			
+			// Apply IS once and weight its votes by the number of equal columns
+			if (multiplicity[j] == 1) {
+				applyIS (new SingleLabelView(space, j, getDependent()), remove);
 			}
 			else {
-				//Select only class attribute 'j'
-				Instances instances_j = MLUtils.keepAttributesAt(new Instances(instances),
-				                                                  new int[]{j},numLabels);
-				instances_j.setClassIndex(0);
+				Arrays.fill(votes, 0);
+				applyIS (new SingleLabelView(space, j, getDependent()), votes);
+				
+				for (int i = 0; i < remove.length; i++)
+					remove[i] += votes[i] * multiplicity[j];
+			}
+			
+			processed += multiplicity[j];
+			unitDone();
+			
+			if (checkpoint != null)
+				checkpoint.done(j);
+		}
+		
+		m_Graph = null;
+		
+		// The checkpoint keeps the unscaled votes in order to resume them
+		if (checkpoint != null)
+			checkpoint.save();
+		
+		// The threshold is searched in [0, #labels], partial votes are scaled
+		if (processed < total)
+			scaleVotes(remove, (double) total / processed);
+	}
+	
+	/**
+	 * Returns the order in which the labels are processed. With a time budget,
+	 * the labels with higher entropy (more balanced) go first, as they are the
+	 * ones that give more votes.
+	 * 
+	 * @param instances Multi-label data set.
+	 * @param multiplicity Multiplicity of every label column.
+	 * @return Indexes of the labels in processing order.
+	 */
+	protected int[] labelOrder(Instances instances, int[] multiplicity) {
+		int numLabels = instances.classIndex();
+		Integer[] order = new Integer[numLabels];
+		final double[] entropy = new double[numLabels];
+		int[] result = new int[numLabels];
+		double p;
+		
+		for (int j = 0; j < numLabels; j++) {
+			order[j] = j;
+			
+			if (m_Budget > 0 && multiplicity[j] > 0) {
+				p = 0;
+				
+				for (int i = 0; i < instances.numInstances(); i++)
+					if (instances.instance(i).value(j) == 1)
+						p++;
+				
+				p /= instances.numInstances();
+				
+				if (p > 0 && p < 1)
+					entropy[j] = -p * Math.log(p) - (1 - p) * Math.log(1 - p);
+			}
+		}
+		
+		// Stable sort, without budget the natural order is kept
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(entropy[b], entropy[a]);
+			}
+		});
+		
+		for (int j = 0; j < numLabels; j++)
+			result[j] = order[j];
+		
+		return result;
+	}
+	
+	/**
+	 * Starts the clock of the time budget.
+	 */
+	protected void startBudget() {
+		m_BudgetStart = currentTime();
+		m_UnitsDone = 0;
+		m_PartialVotes = false;
+	}
+	
+	/**
+	 * Records that a unit of work (label, partition...) has been done.
+	 */
+	protected void unitDone() {
+		m_UnitsDone++;
+	}
+	
+	/**
+	 * Returns whether or not there is time for another unit of work, according 
+	 * to the mean time of the units already done. At least one unit is done.
+	 * 
+	 * @return True if the next unit wouldn't end before the budget runs out.
+	 */
+	protected boolean budgetExhausted() {
+		double elapsed;
+		
+		if (m_Budget <= 0 || m_UnitsDone == 0)
+			return false;
+		
+		elapsed = (currentTime() - m_BudgetStart) / 1e9;
+		
+		return elapsed + elapsed / m_UnitsDone > m_Budget;
+	}
+	
+	/**
+	 * Returns the current time for the budget: the CPU time of the process if 
+	 * the budget is on CPU time, the wall-clock time otherwise.
+	 * 
+	 * @return Time in nanoseconds.
+	 */
+	protected long currentTime() {
+		java.lang.management.OperatingSystemMXBean os;
+		
+		if (m_CPUBudget) {
+			os = ManagementFactory.getOperatingSystemMXBean();
+			
+			if (os instanceof com.sun.management.OperatingSystemMXBean)
+				return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+			
+			return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+		}
+		
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Scales the votes of a partial run to the whole range.
+	 * 
+	 * @param remove Array with votes for removal.
+	 * @param factor Scale factor.
+	 */
+	protected void scaleVotes(int[] remove, double factor) {
+		if (getDebug())
+			System.out.println("Time budget exhausted, votes scaled by " + factor);
+		
+		m_PartialVotes = true;
+		
+		for (int i = 0; i < remove.length; i++)
+			remove[i] = (int) Math.round(remove[i] * factor);
+	}
+	
+	/**
+	 * Returns whether or not the last votes were scaled from a partial run, 
+	 * because the time budget ran out before all the units of work were done.
+	 * 
+	 * @return True if the votes were scaled.
+	 */
+	protected boolean partialVotes() {
+		
+		return m_PartialVotes;
+	}
 	
-				// Generate the dataset
-				oneLblDataset = new Instances(instances_j);
+	/**
+	 * Computes the votes by sharding the units of work across worker processes.
+	 * The data set and one task per shard are written to the shared directory,
+	 * the local workers are launched and the partial votes are summed up as 
+	 * they appear. Workers on other hosts can take tasks from the directory.
+	 * <p>
+	 * It fails if a local worker fails, or if there are pending tasks and for
+	 * the shard timeout no local worker has been alive and no task has been 
+	 * taken or finished (no remote workers).
+	 * 
+	 * @param instances Instances to filter.
+	 * @param remove Array with votes for removal.
+	 * @param numUnits Number of units of work.
+	 * @throws Exception If a worker fails or the tasks aren't taken.
+	 */
+	protected void computeShardedVotes(Instances instances, int[] remove, 
+	                                   int numUnits) throws Exception {
+		File dir, data;
+		File[] results = new File[m_Shards];
+		int[] votes = new int[remove.length];
+		String[] options = setupOptions();
+		long fingerprint = VoteCheckpoint.fingerprint(instances, setupString(options));
+		int numWorkers = Math.min(m_LocalWorkers < 0 ? m_Shards : m_LocalWorkers, m_Shards);
+		ArrayList<Process> workers = new ArrayList<Process>();
+		ArrayList<File> created = new ArrayList<File>();
+		boolean pending = true, alive;
+		int from, to, exit, waiting, lastWaiting = -1, lastDone = -1, done;
+		long idleSince = System.currentTimeMillis();
+		VoteCheckpoint partial;
+		
+		if (m_ShardDir.length() > 0)
+			dir = new File(m_ShardDir);
+		else
+			dir = new File(System.getProperty("java.io.tmpdir"), "bris-" + Long.toHexString(fingerprint));
+		
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new Exception("Can't create shard directory " + dir);
+		
+		data = new File(dir, "data.ser");
+		SerializationHelper.write(data.getPath(), instances);
+		created.add(data);
+		
+		// One task per shard
+		for (int k = 0; k < m_Shards; k++) {
+			from = (int) ((long) k * numUnits / m_Shards);
+			to = (int) ((long) (k + 1) * numUnits / m_Shards);
+			
+			if (from == to)
+				continue;
+			
+			results[k] = new File(dir, "votes-" + k + ".bin");
+			results[k].delete();
+			created.add(results[k]);
+			created.add(new File(dir, "task-" + k + VoteShard.DONE));
+			
+			SerializationHelper.write(new File(dir, "task-" + k + VoteShard.PENDING).getPath(), 
+			          new VoteShard(data.getPath(), fingerprint, getClass().getName(), 
+			                        workerOptions(options, numWorkers), from, to, 
+			                        results[k].getPath()));
+		}
+		
+		if (getDebug())
+			System.out.println("Sharded votes in " + dir);
+		
+		// Local workers
+		for (int w = 0; w < numWorkers; w++) {
+			ProcessBuilder builder = new ProcessBuilder(
+			          new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(),
+			          "-cp", System.getProperty("java.class.path"), 
+			          VoteShard.class.getName(), dir.getPath());
+			
+			builder.redirectErrorStream(true);
+			builder.redirectOutput(new File(dir, "worker-" + w + ".log"));
+			workers.add(builder.start());
+			created.add(new File(dir, "worker-" + w + ".log"));
+		}
+		
+		// Wait for the partial votes and sum them up, the local workers are 
+		// stopped if something fails
+		try {
+			while (pending) {
+				pending = false;
+				waiting = 0;
+				done = 0;
+				
+				for (int k = 0; k < m_Shards; k++) {
+					if (results[k] == null) {
+						done++;
+						continue;
+					}
+					
+					if (!results[k].exists()) {
+						pending = true;
+						
+						if (new File(dir, "task-" + k + VoteShard.PENDING).exists())
+							waiting++;
+						
+						continue;
+					}
+					
+					Arrays.fill(votes, 0);
+					partial = VoteCheckpoint.open(results[k], fingerprint, votes, numUnits, 0);
+					
+					if (partial == null || !partial.isRestored())
+						throw new Exception("Invalid partial votes " + results[k]);
+					
+					for (int i = 0; i < remove.length; i++)
+						remove[i] += votes[i];
+					
+					results[k] = null;
+				}
+				
+				alive = false;
+				
+				for (Process worker : workers) {
+					try {
+						exit = worker.exitValue();
+					}
+					catch (IllegalThreadStateException e) {
+						alive = true;
+						continue;
+					}
+					
+					if (exit != 0)
+						throw new Exception("Worker process failed, see the logs in " + dir);
+				}
+				
+				// Idle: tasks waiting, no local worker to take them and no progress
+				if (alive || waiting == 0 || waiting != lastWaiting || done != lastDone)
+					idleSince = System.currentTimeMillis();
+				
+				lastWaiting = waiting;
+				lastDone = done;
+				
+				if (m_ShardTimeout > 0 && System.currentTimeMillis() - idleSince > m_ShardTimeout * 1000)
+					throw new Exception(waiting + " shards haven't been taken by any worker in " 
+					                    + m_ShardTimeout + " seconds, see " + dir);
+				
+				if (pending)
+					Thread.sleep(200);
 			}
+		}
+		catch (Exception e) {
+			for (Process worker : workers)
+				worker.destroy();
+			
+			throw e;
+		}
+		
+		for (File f : created)
+			f.delete();
+		
+		// Only removed if it is empty
+		if (m_ShardDir.length() == 0)
+			dir.delete();
+	}
+	
+	/**
+	 * Returns the options of the workers: the setup plus their share of the
+	 * threads and the time budget. The local workers split the threads, the
+	 * remote ones use the given number or their global setting. The budget
+	 * of a shard is the wall-clock budget divided by the rounds of shards of
+	 * the local workers, or the CPU budget divided by the number of shards.
+	 * 
+	 * @param options Options of the setup.
+	 * @param numWorkers Number of local workers.
+	 * @return Options of the workers.
+	 */
+	protected String[] workerOptions(String[] options, int numWorkers) {
+		ArrayList<String> result = new ArrayList<String>();
+		int threads = m_Threads > 0 ? m_Threads : Parallel.defaultThreads();
+		int rounds = numWorkers > 0 ? (m_Shards + numWorkers - 1) / numWorkers : 1;
+		int end = Arrays.asList(options).indexOf("--");
+		
+		// The options of a base method (after "--") go last
+		if (end < 0)
+			end = options.length;
+		
+		result.addAll(Arrays.asList(options).subList(0, end));
+		
+		if (numWorkers > 0) {
+			result.add("-T");
+			result.add("" + Math.max(1, threads / numWorkers));
+		}
+		else if (m_Threads > 0) {
+			result.add("-T");
+			result.add("" + m_Threads);
+		}
+		
+		if (m_Budget > 0) {
+			result.add("-B");
+			result.add("" + (m_CPUBudget ? m_Budget / m_Shards : m_Budget / rounds));
+			
+			if (m_CPUBudget)
+				result.add("-U");
+		}
+		
+		result.addAll(Arrays.asList(options).subList(end, options.length));
+		
+		return result.toArray(new String[result.size()]);
+	}
+	
+	/**
+	 * Returns the options that change the votes, that is, without the 
+	 * checkpoint, budget, sharding, threads and debug options. The seed is
+	 * kept, the votes of RAkEL depend on it.
+	 * 
+	 * @return Options of the setup.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected String[] setupOptions() throws Exception {
+		String[] options = getOptions();
+		
+		Utils.getOption('C', options);
+		Utils.getOption('F', options);
+		Utils.getFlag("output-debug-info", options);
+		Utils.getOption('B', options);
+		Utils.getFlag('U', options);
+		Utils.getOption('J', options);
+		Utils.getOption('H', options);
+		Utils.getOption('L', options);
+		Utils.getOption('Q', options);
+		Utils.getOption('T', options);
+		
+		return options;
+	}
+	
+	/**
+	 * Returns the string that identifies the setup of the filter.
+	 * 
+	 * @param options Options of the setup.
+	 * @return Class name and options.
+	 */
+	protected String setupString(String[] options) {
+		
+		return getClass().getName() + " " + Utils.joinOptions(options);
+	}
+	
+	/**
+	 * Opens the checkpoint of the votes, if a checkpoint file has been set. 
+	 * The votes of a previous run over the same data and setup are restored in
+	 * remove.
+	 * 
+	 * @param instances Instances to filter.
+	 * @param remove Array with votes for removal.
+	 * @param numUnits Number of units of work (labels, partitions...).
+	 * @return The checkpoint, null if there isn't checkpoint file.
+	 * @throws Exception If the checkpoint can't be read.
+	 */
+	protected VoteCheckpoint openCheckpoint(Instances instances, int[] remove, 
+	                                        int numUnits) throws Exception {
+		if (m_CheckpointFile.length() == 0)
+			return null;
+		
+		File file = new File(m_CheckpointFile);
+		long fingerprint = VoteCheckpoint.fingerprint(instances, setupString(setupOptions()));
+		
+		m_VoteCheckpoint = VoteCheckpoint.open(file, fingerprint, remove, numUnits, 
+		                                       m_CheckpointInterval);
+		
+		// A checkpoint of other data or setup is overwritten
+		if (m_VoteCheckpoint == null) {
+			if (getDebug())
+				System.out.println("Checkpoint " + file + " doesn't match the data, ignoring it");
+			
+			m_VoteCheckpoint = new VoteCheckpoint(file, fingerprint, remove, numUnits, 
+			                                      m_CheckpointInterval);
+		}
+		
+		if (getDebug() && m_VoteCheckpoint.numDone() > 0)
+			System.out.println("Resuming from checkpoint, units done: " + m_VoteCheckpoint.numDone());
+		
+		return m_VoteCheckpoint;
+	}
+	
+	/**
+	 * Generates the single label data set of a label.
+	 * 
+	 * @param instances Multi-label data set.
+	 * @param j Index of the label.
+	 * @return Data set whose class is the label j.
+	 */
+	protected Instances labelDataset(Instances instances, int j) {
+		int numLabels = instances.classIndex();
+		Instances oneLblDataset;
+		
+		if (getDependent()) {
+			// Generate the dataset
+			oneLblDataset = new Instances(instances);
+			oneLblDataset.setClassIndex(j);
+		}
+		else {
+			//Select only class attribute 'j'
+			Instances instances_j = MLUtils.keepAttributesAt(new Instances(instances),
+			                                                  new int[]{j},numLabels);
+			instances_j.setClassIndex(0);
+
+			// Generate the dataset
+			oneLblDataset = new Instances(instances_j);
+		}
+		
+		return oneLblDataset;
+	}
+	
+	/**
+	 * Whether the distances of the IS method are normalised or not.
+	 * 
+	 * @return True, the distances are normalised by default.
+	 */
+	protected boolean normalizeDistances() {
+		
+		return true;
+	}
+	
+	/**
+	 * Fingerprints the label columns of the data set in order to run the IS
+	 * method once per distinct column. 
+	 * 
+	 * @param instances Multi-label data set.
+	 * @return For every label, the number of labels with an identical column if 
+	 *         it is the first one of them, zero if the column is constant or it 
+	 *         repeats a previous one.
+	 */
+	protected static int[] labelMultiplicities(Instances instances) {
+		int numLabels = instances.classIndex();
+		int[] multiplicity = new int[numLabels];
+		HashMap<Long, ArrayList<Integer>> fingerprints = new HashMap<Long, ArrayList<Integer>>();
+		ArrayList<Integer> sameHash;
+		boolean constant, found;
+		double first, value;
+		long hash;
 		
-			// Apply IS
-			applyIS (oneLblDataset, remove);
+		if (instances.numInstances() == 0)
+			return multiplicity;
+		
+		for (int j = 0; j < numLabels; j++) {
+			constant = true;
+			first = instances.instance(0).value(j);
+			hash = 0xcbf29ce484222325L;
+			
+			// FNV-1a over the column values
+			for (int i = 0; i < instances.numInstances(); i++) {
+				value = instances.instance(i).value(j);
+				
+				if (Double.compare(value, first) != 0)
+					constant = false;
+				
+				hash = (hash ^ Double.doubleToLongBits(value)) * 0x100000001b3L;
+			}
+			
+			// Constant labels don't give information, all the instances share the class
+			if (constant)
+				continue;
+			
+			sameHash = fingerprints.get(hash);
+			
+			if (sameHash == null) {
+				sameHash = new ArrayList<Integer>(1);
+				fingerprints.put(hash, sameHash);
+			}
+			
+			// Check the columns with the same fingerprint, hashes might collide
+			found = false;
+			
+			for (int k : sameHash) {
+				if (equalColumns(instances, j, k)) {
+					multiplicity[k]++;
+					found = true;
+					break;
+				}
+			}
+			
+			if (!found) {
+				sameHash.add(j);
+				multiplicity[j] = 1;
+			}
 		}
+		
+		return multiplicity;
+	}
+	
+	/**
+	 * Returns whether or not two attributes have the same value on every instance.
+	 * 
+	 * @param instances Data set.
+	 * @param a Index of the first attribute.
+	 * @param b Index of the second attribute.
+	 * @return True if both columns are equal, false otherwise.
+	 */
+	private static boolean equalColumns(Instances instances, int a, int b) {
+		for (int i = 0; i < instances.numInstances(); i++)
+			if (Double.compare(instances.instance(i).value(a), instances.instance(i).value(b)) != 0)
+				return false;
+		
+		return true;
 	}
 	
 	/**
@@ -276,6 +1244,37 @@ public abstract class BRIS extends SimpleBatchFilter implements Randomizable {
 	 */
 	protected abstract void applyIS (Instances instances, int[] remove) throws Exception;
 	
+	/**
+	 * Applies the IS method over the view of a label. By default, the data set
+	 * of the label is generated and applyIS(Instances, int[]) is called.
+	 *  
+	 * @param view View of the label.
+	 * @param remove Vector with votes for removal.
+	 */
+	protected void applyIS (SingleLabelView view, int[] remove) throws Exception {
+		applyIS (labelDataset(view.space().instances(), view.label()), remove);
+	}
+	
+	/**
+	 * Returns the k nearest neighbours graph of a view. In independent binary
+	 * relevance the distances don't depend on the label, hence the graph is
+	 * computed once and shared by every label of computeVotes.
+	 * 
+	 * @param view View of the label.
+	 * @param k Number of neighbours.
+	 * @return Neighbour graph.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected NeighbourGraph neighbourGraph (SingleLabelView view, int k) throws Exception {
+		if (getDependent())
+			return new NeighbourGraph(view, k, m_Threads);
+		
+		if (m_Graph == null || m_Graph.space() != view.space() || m_Graph.k() != k)
+			m_Graph = new NeighbourGraph(view, k, m_Threads);
+		
+		return m_Graph;
+	}
+	
 	/**
 	 * Computes the best threshold according to alpha value.
 	 * 
@@ -283,7 +1282,7 @@ public abstract class BRIS extends SimpleBatchFilter implements Randomizable {
 	 * @param remove Vector with votes of every single instance.
 	 * @return The threshold chosen.
 	 */
-	private int computeThreshold (Instances instances, int[] remove) {
+	protected int computeThreshold (Instances instances, int[] remove) {
 		Instances trainSet, testSet;
 		double error, memory, tmpFitness, minFitness = Double.MAX_VALUE;
 		int numLabels = instances.classIndex();
@@ -0,0 +1,192 @@
+/*
+ * BRLSBo.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Vector;
+
+import weka.core.Option;
+import weka.core.Utils;
+
+/**
+ * LSBo instance selection for ML by means of binary relevance.<br>
+ * The threshold is computed using a votation method like DIS.<br>
+ * The local sets are computed as in BRLSS (shared by the labels), when the
+ * noise is removed with LSSm first they are restricted to the remaining
+ * instances instead of computed again.
+ * <p>
+ * Valid options are:
+ * <p>
+ * remove noise with LSSm before LSBo <br>
+ * linear or k-d tree neighbour search <br>
+ * number of labels whose local sets are computed in one pass <br>
+ *
+ * @version 20261018
+ */
+public class BRLSBo extends BRLSS {
+
+	private static final long serialVersionUID = 4318829605318776231L;
+
+	/**
+	 * Whether or not LSSm is applied before LSBo.
+	 */
+	protected boolean m_NoiseFilter = false;
+
+	public String noiseFilterTipText() {
+		return "Remove the noisy instances with LSSm before applying LSBo.";
+	}
+
+	public void setNoiseFilter(boolean noiseFilter) {
+		m_NoiseFilter = noiseFilter;
+	}
+
+	public boolean getNoiseFilter() {
+
+		return m_NoiseFilter;
+	}
+
+	/**
+	 * Returns an enumeration describing the available options.
+	 *
+	 * @return an enumeration of all the available options.
+	 */
+	public Enumeration<Option> listOptions() {
+		ArrayList<Option> options = new ArrayList<Option>(1);
+
+		options.add(new Option("\tRemove noise with LSSm before LSBo.", "M", 0, "-M"));
+
+		Enumeration<Option> enu = super.listOptions();
+
+		while (enu.hasMoreElements())
+			options.add(enu.nextElement());
+
+		return Collections.enumeration(options);
+	}
+
+	/**
+	 * Parses a given list of options.
+	 *
+	 * @param options
+	 *            the list of options as an array of strings.
+	 * @throws Exception
+	 *             if an option is not supported.
+	 */
+	public void setOptions(String[] options) throws Exception {
+		setNoiseFilter(Utils.getFlag('M', options));
+
+		super.setOptions(options);
+	}
+
+	/**
+	 * Gets the current settings of the Classifier.
+	 *
+	 * @return an array of strings suitable for passing to setOptions
+	 */
+	public String[] getOptions() {
+		Vector<String> result = new Vector<String>();
+		String[] options = super.getOptions();
+
+		for (int i = 0; i < options.length; i++)
+			result.add(options[i]);
+
+		if (getNoiseFilter())
+			result.add("-M");
+
+		return result.toArray(new String[result.size()]);
+	}
+
+	@Override
+	public String globalInfo() {
+
+		return "LSBo instance selection by using binary relevance (with voting).";
+	}
+
+	@Override
+	protected void applyIS(SingleLabelView view, int[] remove) throws Exception {
+		boolean[] removed = select(view, localSets(view), searchTree(view), m_NoiseFilter,
+		                           m_Threads);
+
+		for (int i = 0; i < removed.length; i++)
+			if (removed[i])
+				remove[i]++;
+	}
+
+	/**
+	 * LSBo: the instances are visited by increasing size of their local sets,
+	 * and an instance is selected if no instance of its local set is already
+	 * selected.<br>
+	 * With the noise filter, the instances removed by LSSm are discarded first
+	 * and the local sets are restricted to the remaining ones.
+	 *
+	 * @param view View of the label.
+	 * @param localSets Local sets of the view.
+	 * @param tree Tree over the space of the view (can be null).
+	 * @param noiseFilter Whether or not LSSm is applied first.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @return Instances removed by LSBo.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected static boolean[] select(SingleLabelView view, LocalSets localSets, KDTree tree,
+	                                  boolean noiseFilter, int threads) throws Exception {
+		int numInstances = localSets.numInstances();
+		boolean[] removed = new boolean[numInstances], selected = new boolean[numInstances];
+		int[] start = new int[numInstances + 1], order = new int[numInstances];
+		int[] members;
+		boolean covered;
+		int num = 0, e;
+
+		if (noiseFilter) {
+			removed = select(localSets);
+			localSets = localSets.restrict(view, removed, tree, threads);
+		}
+
+		// Sorts the instances by size of their local sets (counting sort)
+		for (int i = 0; i < numInstances; i++)
+			if (!removed[i])
+				start[localSets.size(i) + 1]++;
+
+		for (int s = 0; s < numInstances; s++)
+			start[s + 1] += start[s];
+
+		for (int i = 0; i < numInstances; i++)
+			if (!removed[i]) {
+				order[start[localSets.size(i)]++] = i;
+				num++;
+			}
+
+		members = localSets.members();
+
+		for (int o = 0; o < num; o++) {
+			e = order[o];
+			covered = false;
+
+			for (int p = localSets.offset(e); !covered && p < localSets.offset(e + 1); p++)
+				covered = selected[members[p]];
+
+			if (!covered)
+				selected[e] = true;
+		}
+
+		for (int i = 0; i < numInstances; i++)
+			removed[i] = !selected[i];
+
+		return removed;
+	}
+}
@@ -19,12 +19,13 @@
 package meka.filters.multilabel;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Vector;
 
-import weka.core.DistanceFunction;
-import weka.core.EuclideanDistance;
-import weka.core.Instance;
 import weka.core.Instances;
-import weka.core.NormalizableDistance;
+import weka.core.Option;
+import weka.core.Utils;
 
 /**
  * LSS instance selection for ML by means of binary relevance.<br>
@@ -34,6 +35,8 @@ import weka.core.NormalizableDistance;
  * <p>
  * alpha for fitness function <br>
  * percentage of instances for error computation (in fitness function) <br>
+ * linear or k-d tree neighbour search <br>
+ * number of labels whose local sets are computed in one pass <br>
  * 
  * @author Álvar Arnaiz-González
  * @version 20161031
@@ -42,6 +45,134 @@ public class BRLSS extends BRIS {
 
 	private static final long serialVersionUID = -8947084609767341924L;
 
+	/**
+	 * Maximum number of labels whose local sets are computed in one pass, all
+	 * of them if not positive.
+	 */
+	protected int m_LabelsPerPass = 16;
+
+	public String labelsPerPassTipText() {
+		return "Maximum number of labels whose local sets are computed in one pass over the "
+		     + "instances (0: all the labels), the memory grows with it (same result).";
+	}
+
+	public void setLabelsPerPass(int labels) {
+		m_LabelsPerPass = labels;
+	}
+
+	public int getLabelsPerPass() {
+
+		return m_LabelsPerPass;
+	}
+
+	/**
+	 * Whether the local sets are found with a k-d tree or by linear scans.
+	 */
+	protected boolean m_TreeSearch = false;
+
+	public String treeSearchTipText() {
+		return "Find the local sets by streaming the neighbours from a k-d tree, instead of "
+		     + "comparing every instance with all the others (same result).";
+	}
+
+	public void setTreeSearch(boolean tree) {
+		m_TreeSearch = tree;
+	}
+
+	public boolean getTreeSearch() {
+
+		return m_TreeSearch;
+	}
+
+	/**
+	 * Tree shared by the labels of the current votes computation, and the
+	 * feature space it belongs to.
+	 */
+	protected transient KDTree m_Tree;
+
+	protected transient FeatureSpace m_TreeSpace;
+
+	/**
+	 * Local sets of the labels of the current pass (indexed by label), the
+	 * feature space they belong to and the end of the labels to process.
+	 */
+	protected transient LocalSets[] m_LocalSets;
+
+	protected transient FeatureSpace m_LocalSetsSpace;
+
+	protected transient int m_LabelsEnd;
+
+	/**
+	 * Returns an enumeration describing the available options.
+	 * 
+	 * @return an enumeration of all the available options.
+	 */
+	public Enumeration<Option> listOptions() {
+		ArrayList<Option> options = new ArrayList<Option>(1);
+
+		options.add(new Option("\tNeighbour search: linear (default) or tree (k-d tree).", 
+		                       "N", 1, "-N <linear|tree>"));
+		options.add(new Option("\tLabels whose local sets are computed in one pass, 0 for all"
+		                       + " (default: 16).", "P", 1, "-P <labels>"));
+
+		Enumeration<Option> enu = super.listOptions();
+
+		while (enu.hasMoreElements())
+			options.add(enu.nextElement());
+
+		return Collections.enumeration(options);
+	}
+
+	/**
+	 * Parses a given list of options.
+	 * 
+	 * @param options
+	 *            the list of options as an array of strings.
+	 * @throws Exception
+	 *             if an option is not supported.
+	 */
+	public void setOptions(String[] options) throws Exception {
+		String tmpStr;
+
+		tmpStr = Utils.getOption('N', options);
+
+		if (tmpStr.length() == 0 || tmpStr.equals("linear"))
+			setTreeSearch(false);
+		else if (tmpStr.equals("tree"))
+			setTreeSearch(true);
+		else
+			throw new Exception("Unknown neighbour search: " + tmpStr + " (linear or tree)");
+
+		tmpStr = Utils.getOption('P', options);
+
+		if (tmpStr.length() > 0)
+			setLabelsPerPass(Integer.parseInt(tmpStr));
+		else
+			setLabelsPerPass(16);
+
+		super.setOptions(options);
+	}
+
+	/**
+	 * Gets the current settings of the Classifier.
+	 * 
+	 * @return an array of strings suitable for passing to setOptions
+	 */
+	public String[] getOptions() {
+		Vector<String> result = new Vector<String>();
+		String[] options = super.getOptions();
+
+		for (int i = 0; i < options.length; i++)
+			result.add(options[i]);
+
+		result.add("-N");
+		result.add(getTreeSearch() ? "tree" : "linear");
+		result.add("-P");
+		result.add("" + getLabelsPerPass());
+
+		return result.toArray(new String[result.size()]);
+	}
+
 	@Override
 	public String globalInfo() {
 		
@@ -49,75 +180,143 @@ public class BRLSS extends BRIS {
 	}
 
 	@Override
-	protected void applyIS(Instances instances, int[] remove) throws Exception {
-		int u = 0, h = 0;
-		ArrayList<Integer>[] mLocalSets = new ArrayList[instances.numInstances()];
-		int[] mNearestEnemies = new int[instances.numInstances()];
+	protected boolean normalizeDistances() {
 		
-		// Sort the tmp set according to the distance to their nearest enemy.
-		computeLocalSets(instances, mLocalSets, mNearestEnemies);
-			
-		// Computes u(e).
-		for (int i = 0; i < instances.numInstances(); i++) {
-			for (ArrayList<Integer> localset : mLocalSets)
-				for (int indexLocalSet : localset)
-					if (indexLocalSet == i)
-						u++;
-			
-			// Computes h(e).
-			for (int ne : mNearestEnemies)
-				if (ne == i)
-					h++;
-			
-			// If u(e) >= h(e) add i-th instance to the solution.
-			if (u < h)
-				remove[i]++;
+		// DON'T normalize distances.
+		return false;
+	}
+
+	@Override
+	protected void applyIS(Instances instances, int[] remove) throws Exception {
+		applyIS(new SingleLabelView(instances, normalizeDistances()), remove);
+	}
+
+	@Override
+	protected String[] setupOptions() throws Exception {
+		String[] options = super.setupOptions();
+
+		// The search and the labels per pass don't change the votes
+		Utils.getOption('N', options);
+		Utils.getOption('P', options);
+
+		return options;
+	}
+
+	@Override
+	protected void computeVotes(Instances instances, int[] remove, int from, int to,
+	                            VoteCheckpoint checkpoint) throws Exception {
+		m_Tree = null;
+		m_TreeSpace = null;
+		m_LocalSets = null;
+		m_LocalSetsSpace = null;
+		m_LabelsEnd = to;
+
+		try {
+			super.computeVotes(instances, remove, from, to, checkpoint);
+		}
+		finally {
+			m_Tree = null;
+			m_TreeSpace = null;
+			m_LocalSets = null;
+			m_LocalSetsSpace = null;
 		}
 	}
 
+	@Override
+	protected void applyIS(SingleLabelView view, int[] remove) throws Exception {
+		boolean[] removed = select(localSets(view));
+
+		for (int i = 0; i < removed.length; i++)
+			if (removed[i])
+				remove[i]++;
+	}
+
 	/**
-	 * Computes localsets.
+	 * Returns the local sets of a view. In independent binary relevance the
+	 * distances don't depend on the label, so the local sets of the next
+	 * labels (up to m_LabelsPerPass, or all of them) are computed together,
+	 * sorting the neighbours of every instance once. In dependent binary relevance, or 
+	 * with a time budget (that can stop between labels), they are computed 
+	 * label by label.
 	 * 
-	 * @param trainSet Training set.
-	 * @param localSets Local sets.
-	 * @param enemies Array with the enemyies' indexes.
+	 * @param view View of the label.
+	 * @return Local sets of the label.
+	 * @throws Exception If something goes wrong.
 	 */
-	protected static void computeLocalSets (Instances trainSet, ArrayList<Integer>[] localSets, int[] enemies) {
-		DistanceFunction distanceFunction;
-		Instance instI, instJ;
-		double[] distances;
-		double distNearEnemy;
-		
-		// DON'T normalize distances.
-		distanceFunction = new EuclideanDistance(trainSet);
-		((NormalizableDistance)distanceFunction).setDontNormalize(true);
-		
-		for (int i = 0; i < trainSet.numInstances(); i++) {
-			localSets[i] = new ArrayList<Integer>();
-			distances = new double[trainSet.numInstances()];
-			distNearEnemy = Double.MAX_VALUE;
-			
-			instI = trainSet.instance(i);
-			
-			// Compute the distance between instI and the others.
-			for (int j = 0; j < trainSet.numInstances(); j++) {
-				if (i != j) {
-					instJ = trainSet.instance(j);
-					distances[j] = distanceFunction.distance(instI, instJ);
-					
-					if (instI.classValue() != instJ.classValue() && 
-					     distances[j] < distNearEnemy) {
-						distNearEnemy = distances[j];
-						enemies[i] = j;
-					}
+	protected LocalSets localSets(SingleLabelView view) throws Exception {
+		SingleLabelView[] views;
+		int[] multiplicity;
+		int num = 0;
+
+		if (getDependent() || m_Budget > 0 || view.label() < 0)
+			return new LocalSets(view, searchTree(view), m_Threads);
+
+		if (m_LocalSetsSpace != view.space() || m_LocalSets[view.label()] == null) {
+			multiplicity = labelMultiplicities(view.space().instances());
+			views = new SingleLabelView[view.space().numLabels()];
+			views[view.label()] = view;
+
+			// The labels are processed in order, the repeated ones are skipped
+			for (int j = view.label() + 1; j < m_LabelsEnd &&
+			     (m_LabelsPerPass <= 0 || num < m_LabelsPerPass - 1); j++) {
+				if (multiplicity[j] > 0) {
+					views[j] = new SingleLabelView(view.space(), j, false);
+					num++;
 				}
 			}
 
-			// Compute the localset of instI.
-			for (int j = 0; j < distances.length; j++)
-				if (i != j)
-					if (distances[j] < distNearEnemy)
-						localSets[i].add(j);
+			m_LocalSets = LocalSets.forLabels(views, searchTree(view), m_Threads);
+			m_LocalSetsSpace = view.space();
+		}
+
+		return m_LocalSets[view.label()];
+	}
+
+	/**
+	 * Returns the tree used to find the local sets of a view. It only depends
+	 * on the features, hence it is built once and shared by every label.
+	 * 
+	 * @param view View of the label.
+	 * @return The tree, null if the search is linear.
+	 */
+	protected KDTree searchTree(SingleLabelView view) {
+		if (!m_TreeSearch)
+			return null;
+
+		if (m_TreeSpace != view.space()) {
+			m_Tree = KDTree.build(view.space());
+			m_TreeSpace = view.space();
 		}
+
+		return m_Tree;
+	}
+
+	/**
+	 * LSS decision: an instance is kept if it is in as many local sets, u(e),
+	 * as instances it is the nearest enemy of, h(e), or more.<br>
+	 * Both counts are computed for all the instances in a single pass over 
+	 * the local sets and the enemies.
+	 * 
+	 * @param localSets Local sets and nearest enemies.
+	 * @return Instances removed by LSS.
+	 */
+	protected static boolean[] select(LocalSets localSets) {
+		int[] u = new int[localSets.numInstances()], h = new int[localSets.numInstances()];
+		boolean[] removed = new boolean[localSets.numInstances()];
+
+		// Computes u(e).
+		for (int indexLocalSet : localSets.members())
+			u[indexLocalSet]++;
+
+		// Computes h(e).
+		for (int ne : localSets.enemies())
+			if (ne != -1)
+				h[ne]++;
+
+		// If u(e) >= h(e) add i-th instance to the solution.
+		for (int i = 0; i < removed.length; i++)
+			removed[i] = u[i] < h[i];
+
+		return removed;
 	}
 }
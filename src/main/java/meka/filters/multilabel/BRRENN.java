@@ -0,0 +1,192 @@
+/*
+ * BRRENN.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain 
+ *     
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *     
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *     
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Vector;
+
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
+
+/**
+ * RENN (repeated ENN) instance selection for ML by means of binary relevance.<br>
+ * The threshold is computed using a votation method like DIS.
+ * <p>
+ * Valid options are:
+ * <p>
+ * number of nearest neighbours <br>
+ * alpha for fitness function <br>
+ * percentage of instances for error computation (in fitness function) <br>
+ * 
+ * @version 20261018
+ */
+public class BRRENN extends BRIS {
+
+	private static final long serialVersionUID = -2297815706472317730L;
+
+	/**
+	 * Number of nearest neighbours.
+	 */
+	protected int m_K = 3;
+
+	public String kTipText() {
+		return "Number of nearest neighbours.";
+	}
+
+	public void setK (int k) {
+		m_K = k;
+	}
+
+	public int getK () {
+		
+		return m_K;
+	}
+
+	/**
+	 * Returns an enumeration describing the available options.
+	 * 
+	 * @return an enumeration of all the available options.
+	 */
+	public Enumeration<Option> listOptions() {
+		ArrayList<Option> options = new ArrayList<Option>(1);
+
+		options.add(new Option("\tNumber of nearest neighbours (default: 3).", "K", 1, "-K <num>"));
+
+		Enumeration<Option> enu = super.listOptions();
+
+		while (enu.hasMoreElements())
+			options.add(enu.nextElement());
+
+		return Collections.enumeration(options);
+	}
+
+	/**
+	 * Parses a given list of options.
+	 * 
+	 * @param options
+	 *            the list of options as an array of strings.
+	 * @throws Exception
+	 *             if an option is not supported.
+	 */
+	public void setOptions(String[] options) throws Exception {
+		String tmpStr;
+
+		tmpStr = Utils.getOption('K', options);
+
+		if (tmpStr.length() > 0)
+			setK(Integer.parseInt(tmpStr));
+		else
+			setK(3);
+
+		super.setOptions(options);
+	}
+
+	/**
+	 * Gets the current settings of the Classifier.
+	 * 
+	 * @return an array of strings suitable for passing to setOptions
+	 */
+	public String[] getOptions() {
+		Vector<String> result = new Vector<String>();
+		String[] options = super.getOptions();
+
+		for (int i = 0; i < options.length; i++)
+			result.add(options[i]);
+
+		result.add("-K");
+		result.add("" + getK());
+
+		return result.toArray(new String[result.size()]);
+	}
+
+	@Override
+	public String globalInfo() {
+		
+		return "RENN (repeated ENN) instance selection by using binary relevance (with voting).";
+	}
+
+	@Override
+	protected void applyIS(Instances instances, int[] remove) throws Exception {
+		applyIS(new SingleLabelView(instances, normalizeDistances()), remove);
+	}
+
+	@Override
+	protected void applyIS(SingleLabelView view, int[] remove) throws Exception {
+		// The shared graph is copied, the repairs depend on the label
+		boolean[] removed = repeatedEdit(view, new NeighbourGraph(neighbourGraph(view, m_K)), 
+		                                 m_Threads);
+
+		for (int i = 0; i < removed.length; i++)
+			if (removed[i])
+				remove[i]++;
+	}
+
+	/**
+	 * Applies RENN over a view: batch ENN is repeated over the remaining 
+	 * instances until no instance is removed. After every round the graph is
+	 * repaired and only the instances whose neighbours have changed are 
+	 * checked again, the others keep their classification.
+	 * 
+	 * @param view View of the data set.
+	 * @param graph Neighbour graph of the data set, it is repaired in place.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @return Instances removed by RENN.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected static boolean[] repeatedEdit(SingleLabelView view, NeighbourGraph graph, 
+	                                        int threads) throws Exception {
+		int numInstances = view.numInstances();
+		boolean[] removed = new boolean[numInstances];
+		boolean[] check = new boolean[numInstances];
+		int[] classes = view.classes();
+		int[] counts = new int[view.numClasses()];
+		int[] misclassified = new int[numInstances];
+		int numMisclassified;
+		int[] nn;
+
+		for (int i = 0; i < numInstances; i++)
+			check[i] = true;
+
+		while (true) {
+			numMisclassified = 0;
+
+			for (int i = 0; i < numInstances; i++) {
+				if (removed[i] || !check[i])
+					continue;
+
+				nn = graph.neighbours(i);
+
+				if (BRENN.isMisclassified(classes, i, nn, nn.length, counts))
+					misclassified[numMisclassified++] = i;
+			}
+
+			if (numMisclassified == 0)
+				break;
+
+			for (int m = 0; m < numMisclassified; m++)
+				removed[misclassified[m]] = true;
+
+			check = graph.repair(view, removed, threads);
+		}
+
+		return removed;
+	}
+}
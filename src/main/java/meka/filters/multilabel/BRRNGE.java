@@ -19,12 +19,11 @@
 package meka.filters.multilabel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Vector;
 
-import weka.core.DistanceFunction;
-import weka.core.EuclideanDistance;
 import weka.core.Instances;
 import weka.core.Option;
 import weka.core.Utils;
@@ -36,6 +35,7 @@ import weka.core.Utils;
  * Valid options are:
  * <p>
  * whether or not use the 2nd order graph <br>
+ * exact or approximate relative neighbourhood graph <br>
  * alpha for fitness function <br>
  * percentage of instances for error computation (in fitness function) <br>
  * 
@@ -64,16 +64,47 @@ public class BRRNGE extends BRIS {
 		return m_FirstOrder;
 	}
 
+	/**
+	 * Whether the graph is the exact relative neighbourhood graph or the
+	 * nearest successor approximation.
+	 */
+	protected boolean m_ExactGraph = false;
+
+	public String exactGraphTipText() {
+		return "Use the exact relative neighbourhood graph (computed in parallel) instead of "
+		     + "the nearest successor approximation.";
+	}
+
+	public void setExactGraph(boolean exact) {
+		m_ExactGraph = exact;
+	}
+
+	public boolean getExactGraph() {
+
+		return m_ExactGraph;
+	}
+
+	/**
+	 * Proximity graph shared by the labels of the current votes computation,
+	 * and the feature space it belongs to.
+	 */
+	protected transient ProximityGraph m_Proximity;
+
+	protected transient FeatureSpace m_ProximitySpace;
+
 	/**
 	 * Returns an enumeration describing the available options.
 	 * 
 	 * @return an enumeration of all the available options.
 	 */
 	public Enumeration<Option> listOptions() {
-		ArrayList<Option> options = new ArrayList<Option>(1);
+		ArrayList<Option> options = new ArrayList<Option>(2);
 
 		options.add(new Option("\tUse the first or second order graph.", "O", 0, "-O"));
 
+		options.add(new Option("\tRelative neighbourhood graph: exact or approx\n"
+		                     + "\t(nearest successor, default).", "G", 1, "-G <exact|approx>"));
+
 		Enumeration<Option> enu = super.listOptions();
 
 		while (enu.hasMoreElements())
@@ -100,6 +131,15 @@ public class BRRNGE extends BRIS {
 		else
 			setFirstOrder(1);
 
+		tmpStr = Utils.getOption('G', options);
+
+		if (tmpStr.length() == 0 || tmpStr.equals("approx"))
+			setExactGraph(false);
+		else if (tmpStr.equals("exact"))
+			setExactGraph(true);
+		else
+			throw new Exception("Unknown graph: " + tmpStr + " (exact or approx)");
+
 		super.setOptions(options);
 	}
 
@@ -118,6 +158,9 @@ public class BRRNGE extends BRIS {
 		result.add("-O");
 		result.add("" + getFirstOrder());
 
+		result.add("-G");
+		result.add(getExactGraph() ? "exact" : "approx");
+
 		return result.toArray(new String[result.size()]);
 	}
 
@@ -129,60 +172,186 @@ public class BRRNGE extends BRIS {
 
 	@Override
 	protected void applyIS(Instances instances, int[] remove) throws Exception {
-		DistanceFunction distance = new EuclideanDistance(instances);
-		boolean[][] graph = new boolean[instances.numInstances()][instances.numInstances()];
-		Instances nn;
-		double min, dist;
-		int rel;
-
-		// Build the Relative Neighbourhood Graph (RNG)
-		for (int i = 0; i < instances.numInstances(); i++) {
-			min = Double.MAX_VALUE;
-			rel = -1;
-
-			for (int j = i; j < instances.numInstances(); j++) {
-				if (i != j) {
-					dist = distance.distance(instances.get(i), instances.get(j));
-
-					if (dist < min) {
-						min = dist;
-						rel = j;
-					}
-				}
+		applyIS(new SingleLabelView(instances, normalizeDistances()), remove);
+	}
+
+	@Override
+	protected void computeVotes(Instances instances, int[] remove, int from, int to,
+	                            VoteCheckpoint checkpoint) throws Exception {
+		m_Proximity = null;
+		m_ProximitySpace = null;
+
+		try {
+			super.computeVotes(instances, remove, from, to, checkpoint);
+		}
+		finally {
+			m_Proximity = null;
+			m_ProximitySpace = null;
+		}
+	}
+
+	@Override
+	protected void applyIS(SingleLabelView view, int[] remove) throws Exception {
+		boolean[] removed = edit(view, proximityGraph(view), m_FirstOrder, m_Threads);
+
+		for (int i = 0; i < removed.length; i++)
+			if (removed[i])
+				remove[i]++;
+	}
+
+	/**
+	 * Returns the proximity graph of a view. In independent binary relevance
+	 * the graph only depends on the feature distances, hence it is built once
+	 * and every label just runs the edit over it.
+	 * 
+	 * @param view View of the label.
+	 * @return Proximity graph.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected ProximityGraph proximityGraph(SingleLabelView view) throws Exception {
+		if (getDependent())
+			return buildGraph(view, m_ExactGraph, m_Threads);
+
+		if (m_Proximity == null || m_ProximitySpace != view.space()) {
+			m_Proximity = buildGraph(view, m_ExactGraph, m_Threads);
+			m_ProximitySpace = view.space();
+		}
+
+		return m_Proximity;
+	}
+
+	/**
+	 * Builds the proximity graph of a view.
+	 * 
+	 * @param view View of the data set.
+	 * @param exact Whether the graph is the exact RNG or the approximation.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @return Proximity graph.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected static ProximityGraph buildGraph(SingleLabelView view, boolean exact, int threads)
+	                                              throws Exception {
+
+		return exact ? ProximityGraph.exact(view, threads) : ProximityGraph.approximate(view, threads);
+	}
+
+	/**
+	 * Applies RNGE over a view with the given graph. Only the edges of the 
+	 * graph are visited, the neighbours are gathered in a reused array and 
+	 * voted with reused counters.<br>
+	 * The second order neighbourhood is the set of neighbours plus the
+	 * neighbours of the neighbours of the same class. A stamp per instance
+	 * marks the ones already gathered, so every instance is voted once and
+	 * the instance itself isn't a neighbour.<br>
+	 * The decisions only depend on the graph, so the instances are checked
+	 * in parallel, every chunk with its own buffers. The stamps are unique per
+	 * instance, hence every thread reuses the same array for all its chunks,
+	 * and it is only allocated for the second order.
+	 * 
+	 * @param view View of the data set.
+	 * @param graph Proximity graph of the data set.
+	 * @param firstOrder 1 for the first order graph, otherwise the second.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @return Instances removed by RNGE.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected static boolean[] edit(final SingleLabelView view, final ProximityGraph graph,
+	                                final int firstOrder, int threads) throws Exception {
+		final boolean[] removed = new boolean[view.numInstances()];
+		final ThreadLocal<int[]> stamps = new ThreadLocal<int[]>() {
+			@Override
+			protected int[] initialValue() {
+				return firstOrder == 1 ? null : new int[view.numInstances()];
 			}
+		};
 
-			if (rel != -1) {
-				graph[i][rel] = true;
-				graph[rel][i] = true;
+		Parallel.forRange(0, view.numInstances(), threads, new Parallel.Range() {
+			@Override
+			public void run(int from, int to) {
+				edit(view, graph, firstOrder, from, to, removed, stamps.get());
 			}
-		}
+		});
+
+		return removed;
+	}
+
+	/**
+	 * Applies RNGE over a range of instances.
+	 * 
+	 * @param view View of the data set.
+	 * @param graph Proximity graph of the data set.
+	 * @param firstOrder 1 for the first order graph, otherwise the second.
+	 * @param from First instance of the range.
+	 * @param to Last instance of the range (exclusive).
+	 * @param removed Where the removed instances are marked.
+	 * @param stamps Stamps of the gathered instances, one per instance (only
+	 *               used by the second order, can be null for the first one).
+	 */
+	protected static void edit(SingleLabelView view, ProximityGraph graph, int firstOrder,
+	                           int from, int to, boolean[] removed, int[] stamps) {
+		int[] classes = view.classes();
+		int[] counts = new int[view.numClasses()];
+		int[] targets = graph.targets();
+		int[] nn = new int[10];
+		int numNN, j, stamp;
 
 		// Discard instances according to the algorithm.
-		for (int i = 0; i < instances.numInstances(); i++) {
-			// Empty set of instances, capacity is not taken into account.
-			nn = new Instances(instances, 10);
+		for (int i = from; i < to; i++) {
+			// Empty set of neighbours.
+			numNN = 0;
+			stamp = i + 1;
 
-			for (int j = 0; j < instances.numInstances(); j++)
-				if (graph[i][j])
-					nn.add(instances.get(j));
+			for (int e = graph.offset(i); e < graph.offset(i + 1); e++)
+				nn = add(nn, numNN++, targets[e]);
 
-			if (BRENN.isMisclassified(instances.instance(i), nn)) {
+			if (BRENN.isMisclassified(classes, i, nn, numNN, counts)) {
 				// 1st order
-				if (m_FirstOrder == 1) {
-					remove[i]++;
+				if (firstOrder == 1) {
+					removed[i] = true;
 				} else {
-					// 2nd order
-					for (int j = 0; j < instances.numInstances(); j++)
-						if (graph[i][j] && instances.get(i).classValue() == instances.get(j).classValue())
-							for (int k = 0; k < instances.numInstances(); k++)
-								if (graph[j][k])
-									nn.add(instances.get(k));
-
-					if (BRENN.isMisclassified(instances.instance(i), nn)) {
-						remove[i]++;
+					// 2nd order, the instance and its neighbours are stamped
+					stamps[i] = stamp;
+
+					for (int e = graph.offset(i); e < graph.offset(i + 1); e++)
+						stamps[targets[e]] = stamp;
+
+					for (int e = graph.offset(i); e < graph.offset(i + 1); e++) {
+						j = targets[e];
+
+						if (classes[i] != classes[j])
+							continue;
+
+						for (int f = graph.offset(j); f < graph.offset(j + 1); f++) {
+							if (stamps[targets[f]] == stamp)
+								continue;
+
+							nn = add(nn, numNN++, targets[f]);
+							stamps[targets[f]] = stamp;
+						}
+					}
+
+					if (BRENN.isMisclassified(classes, i, nn, numNN, counts)) {
+						removed[i] = true;
 					}
 				}
 			}
 		}
 	}
+
+	/**
+	 * Sets a neighbour in the array, growing it if it is full.
+	 * 
+	 * @param nn Array of neighbours.
+	 * @param pos Position of the new neighbour.
+	 * @param neighbour Index of the neighbour.
+	 * @return The array of neighbours.
+	 */
+	protected static int[] add(int[] nn, int pos, int neighbour) {
+		if (pos == nn.length)
+			nn = Arrays.copyOf(nn, nn.length * 2);
+
+		nn[pos] = neighbour;
+
+		return nn;
+	}
 }
@@ -0,0 +1,532 @@
+/*
+ * FeatureSpace.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.Arrays;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Primitive copy of a multi-label data set for distance computations.<br>
+ * The squared Euclidean distance (as computed by weka's EuclideanDistance)
+ * is decomposed into a feature part and a label part. The feature part is
+ * shared by every label and can be cached, the label part is the number of
+ * different labels, computed from packed bitsets.
+ * <p>
+ *
+ * @version 20261018
+ */
+public class FeatureSpace {
+
+	/**
+	 * Maximum number of pairs whose feature distance is cached.
+	 */
+	public static final long MAX_CACHED_PAIRS = 1L << 24;
+
+	/**
+	 * Original data set.
+	 */
+	protected Instances m_Instances;
+
+	/**
+	 * Indexes of the label attributes.
+	 */
+	protected int[] m_LabelIndices;
+
+	/**
+	 * Feature values of every instance (normalised if required), NaN if missing.
+	 */
+	protected double[][] m_Features;
+
+	/**
+	 * Whether each feature is nominal or not.
+	 */
+	protected boolean[] m_Nominal;
+
+	/**
+	 * Minimum and maximum of each feature, as used for missing values.
+	 */
+	protected double[] m_Min, m_Max;
+
+	/**
+	 * Whether the features are normalised or not.
+	 */
+	protected boolean m_Normalize;
+
+	/**
+	 * Whether there are missing or nominal values (slow distance) or not.
+	 */
+	protected boolean m_Plain = true;
+
+	/**
+	 * Labels of every instance packed as bitsets.
+	 */
+	protected long[][] m_Labels;
+
+	/**
+	 * Lower triangular matrix with the squared feature distances, null if
+	 * they are not cached.
+	 */
+	protected double[] m_Cache;
+
+	/**
+	 * Builds the space of a multi-label data set whose first numLabels
+	 * attributes are the labels.
+	 *
+	 * @param instances Multi-label data set.
+	 * @param numLabels Number of labels.
+	 * @param normalize Whether normalise the features or not.
+	 */
+	public FeatureSpace(Instances instances, int numLabels, boolean normalize) {
+		this(instances, sequence(numLabels), normalize);
+	}
+
+	/**
+	 * Builds the space of a data set. All the attributes that aren't labels are
+	 * features.
+	 *
+	 * @param instances Data set.
+	 * @param labelIndices Indexes of the label attributes.
+	 * @param normalize Whether normalise the features or not.
+	 */
+	public FeatureSpace(Instances instances, int[] labelIndices, boolean normalize) {
+		boolean[] isLabel = new boolean[instances.numAttributes()];
+		int[] features;
+		int numFeatures = 0;
+		Attribute att;
+		Instance inst;
+		double value, width;
+
+		m_Instances = instances;
+		m_LabelIndices = labelIndices;
+		m_Normalize = normalize;
+
+		for (int l : labelIndices)
+			isLabel[l] = true;
+
+		// Only numeric and nominal attributes take part in the distance
+		features = new int[instances.numAttributes()];
+
+		for (int a = 0; a < instances.numAttributes(); a++) {
+			att = instances.attribute(a);
+
+			if (!isLabel[a] && (att.isNumeric() || att.isNominal()))
+				features[numFeatures++] = a;
+		}
+
+		m_Nominal = new boolean[numFeatures];
+		m_Min = new double[numFeatures];
+		m_Max = new double[numFeatures];
+		m_Features = new double[instances.numInstances()][numFeatures];
+		m_Labels = new long[instances.numInstances()][(labelIndices.length + 63) >>> 6];
+
+		for (int f = 0; f < numFeatures; f++) {
+			m_Nominal[f] = instances.attribute(features[f]).isNominal();
+			m_Min[f] = Double.NaN;
+			m_Max[f] = Double.NaN;
+
+			if (m_Nominal[f])
+				m_Plain = false;
+		}
+
+		for (int i = 0; i < instances.numInstances(); i++) {
+			inst = instances.instance(i);
+
+			for (int f = 0; f < numFeatures; f++) {
+				value = inst.value(features[f]);
+				m_Features[i][f] = value;
+
+				if (Double.isNaN(value)) {
+					m_Plain = false;
+				}
+				else if (!m_Nominal[f]) {
+					if (Double.isNaN(m_Min[f]) || value < m_Min[f])
+						m_Min[f] = value;
+					if (Double.isNaN(m_Max[f]) || value > m_Max[f])
+						m_Max[f] = value;
+				}
+			}
+
+			for (int l = 0; l < labelIndices.length; l++)
+				if (inst.value(labelIndices[l]) == 1)
+					m_Labels[i][l >>> 6] |= 1L << l;
+		}
+
+		// Normalise by range as weka does, constant features are set to 0.
+		if (normalize) {
+			for (int f = 0; f < numFeatures; f++) {
+				if (m_Nominal[f])
+					continue;
+
+				width = m_Max[f] - m_Min[f];
+
+				for (int i = 0; i < m_Features.length; i++)
+					if (!Double.isNaN(m_Features[i][f]))
+						m_Features[i][f] = (Double.isNaN(width) || width == 0) ? 0 :
+						                   (m_Features[i][f] - m_Min[f]) / width;
+			}
+		}
+	}
+
+	/**
+	 * Returns the original data set.
+	 *
+	 * @return Original data set.
+	 */
+	public Instances instances() {
+
+		return m_Instances;
+	}
+
+	/**
+	 * Returns the number of instances.
+	 *
+	 * @return Number of instances.
+	 */
+	public int numInstances() {
+
+		return m_Features.length;
+	}
+
+	/**
+	 * Returns the number of features.
+	 *
+	 * @return Number of features.
+	 */
+	public int numFeatures() {
+
+		return m_Nominal.length;
+	}
+
+	/**
+	 * Returns whether or not a feature is nominal.
+	 *
+	 * @param f Index of the feature.
+	 * @return True if the feature is nominal.
+	 */
+	public boolean isNominal(int f) {
+
+		return m_Nominal[f];
+	}
+
+	/**
+	 * Returns the value of a feature of an instance, as used in the distance
+	 * (normalised if required).
+	 *
+	 * @param i Index of the instance.
+	 * @param f Index of the feature.
+	 * @return Value of the feature, NaN if it is missing.
+	 */
+	public double feature(int i, int f) {
+
+		return m_Features[i][f];
+	}
+
+	/**
+	 * Returns the number of labels.
+	 *
+	 * @return Number of labels.
+	 */
+	public int numLabels() {
+
+		return m_LabelIndices.length;
+	}
+
+	/**
+	 * Returns whether or not the instance has the label.
+	 *
+	 * @param i Index of the instance.
+	 * @param label Index of the label.
+	 * @return True if the label is relevant for the instance.
+	 */
+	public boolean hasLabel(int i, int label) {
+
+		return (m_Labels[i][label >>> 6] & (1L << label)) != 0;
+	}
+
+	/**
+	 * Returns the labels of an instance packed as a bitset (label l is bit
+	 * l % 64 of word l / 64). The array is shared, it must not be modified.
+	 *
+	 * @param i Index of the instance.
+	 * @return Packed labels.
+	 */
+	public long[] labels(int i) {
+
+		return m_Labels[i];
+	}
+
+	/**
+	 * Returns the column of a label as class values (0 or 1).
+	 *
+	 * @param label Index of the label.
+	 * @return Class value of every instance.
+	 */
+	public int[] labelColumn(int label) {
+		int[] classes = new int[numInstances()];
+
+		for (int i = 0; i < classes.length; i++)
+			classes[i] = hasLabel(i, label) ? 1 : 0;
+
+		return classes;
+	}
+
+	/**
+	 * Computes and keeps the feature distances between every pair of
+	 * instances, if they fit in MAX_CACHED_PAIRS.
+	 *
+	 * @return True if the distances have been cached.
+	 */
+	public boolean cacheDistances() {
+		long n = numInstances();
+
+		if (m_Cache != null)
+			return true;
+
+		if (n * (n - 1) / 2 > MAX_CACHED_PAIRS)
+			return false;
+
+		double[] cache = new double[(int) (n * (n - 1) / 2)];
+
+		for (int i = 1; i < n; i++)
+			for (int j = 0; j < i; j++)
+				cache[(i * (i - 1) >>> 1) + j] = computeFeatureDistance(i, j);
+
+		m_Cache = cache;
+
+		return true;
+	}
+
+	/**
+	 * Returns the squared distance between two instances in the feature space.
+	 *
+	 * @param a Index of the first instance.
+	 * @param b Index of the second instance.
+	 * @return Squared feature distance.
+	 */
+	public double featureDistance(int a, int b) {
+		if (a == b)
+			return 0;
+
+		if (m_Cache != null)
+			return a > b ? m_Cache[(a * (a - 1) >>> 1) + b] : m_Cache[(b * (b - 1) >>> 1) + a];
+
+		return computeFeatureDistance(a, b);
+	}
+
+	/**
+	 * Returns the number of labels in which two instances differ, that is, the
+	 * squared distance between them in the label space.
+	 *
+	 * @param a Index of the first instance.
+	 * @param b Index of the second instance.
+	 * @return Hamming distance between the labelsets.
+	 */
+	public int labelDistance(int a, int b) {
+		long[] la = m_Labels[a], lb = m_Labels[b];
+		int dist = 0;
+
+		for (int w = 0; w < la.length; w++)
+			dist += Long.bitCount(la[w] ^ lb[w]);
+
+		return dist;
+	}
+
+	/**
+	 * Returns, for every class, the instance nearest to the center of the 
+	 * class: the mean of the numeric features and the mode of the nominal 
+	 * ones, the missing values are ignored. Only the features take part, not
+	 * the labels.
+	 *
+	 * @param classes Class of every instance.
+	 * @param numClasses Number of classes.
+	 * @return Index of the centroid of every class, -1 if a class is empty.
+	 */
+	public int[] centroids(int[] classes, int numClasses) {
+		int[] start = new int[numClasses + 1], members = new int[classes.length];
+		int[] centroids = new int[numClasses], pos;
+		double[] center = new double[m_Nominal.length], values = new double[classes.length];
+		double min, dist;
+		int num;
+
+		// Instances grouped by class
+		for (int c : classes)
+			start[c + 1]++;
+
+		for (int c = 0; c < numClasses; c++)
+			start[c + 1] += start[c];
+
+		pos = start.clone();
+
+		for (int i = 0; i < classes.length; i++)
+			members[pos[classes[i]]++] = i;
+
+		for (int c = 0; c < numClasses; c++) {
+			centroids[c] = -1;
+
+			if (start[c] == start[c + 1])
+				continue;
+
+			for (int f = 0; f < center.length; f++) {
+				num = 0;
+
+				for (int m = start[c]; m < start[c + 1]; m++)
+					if (!Double.isNaN(m_Features[members[m]][f]))
+						values[num++] = m_Features[members[m]][f];
+
+				center[f] = m_Nominal[f] ? mode(values, num) : mean(values, num);
+			}
+
+			min = Double.MAX_VALUE;
+
+			for (int m = start[c]; m < start[c + 1]; m++) {
+				dist = computeFeatureDistance(center, m_Features[members[m]]);
+
+				if (dist < min) {
+					min = dist;
+					centroids[c] = members[m];
+				}
+			}
+		}
+
+		return centroids;
+	}
+
+	/**
+	 * Returns the mean of the first values of an array.
+	 *
+	 * @param values Array of values.
+	 * @param num Number of values.
+	 * @return Mean, NaN if there are no values.
+	 */
+	private static double mean(double[] values, int num) {
+		double sum = 0;
+
+		for (int v = 0; v < num; v++)
+			sum += values[v];
+
+		return num == 0 ? Double.NaN : sum / num;
+	}
+
+	/**
+	 * Returns the most frequent of the first values of an array, the lowest
+	 * one in case of tie. The values are sorted.
+	 *
+	 * @param values Array of values.
+	 * @param num Number of values.
+	 * @return Mode, NaN if there are no values.
+	 */
+	private static double mode(double[] values, int num) {
+		double mode = Double.NaN;
+		int best = 0, run = 0;
+
+		Arrays.sort(values, 0, num);
+
+		for (int v = 0; v < num; v++) {
+			run = (v > 0 && values[v] == values[v - 1]) ? run + 1 : 1;
+
+			if (run > best) {
+				best = run;
+				mode = values[v];
+			}
+		}
+
+		return mode;
+	}
+
+	/**
+	 * Computes the squared feature distance following weka's
+	 * NormalizableDistance rules for nominal and missing values.
+	 *
+	 * @param a Index of the first instance.
+	 * @param b Index of the second instance.
+	 * @return Squared feature distance.
+	 */
+	protected double computeFeatureDistance(int a, int b) {
+
+		return computeFeatureDistance(m_Features[a], m_Features[b]);
+	}
+
+	/**
+	 * Computes the squared feature distance between two vectors of features.
+	 *
+	 * @param xa Features of the first instance.
+	 * @param xb Features of the second instance.
+	 * @return Squared feature distance.
+	 */
+	protected double computeFeatureDistance(double[] xa, double[] xb) {
+		double dist = 0, diff;
+
+		if (m_Plain) {
+			for (int f = 0; f < xa.length; f++) {
+				diff = xa[f] - xb[f];
+				dist += diff * diff;
+			}
+
+			return dist;
+		}
+
+		for (int f = 0; f < xa.length; f++) {
+			if (m_Nominal[f])
+				diff = (Double.isNaN(xa[f]) || Double.isNaN(xb[f]) || xa[f] != xb[f]) ? 1 : 0;
+			else if (Double.isNaN(xa[f]) && Double.isNaN(xb[f]))
+				diff = m_Normalize ? 1 : m_Max[f] - m_Min[f];
+			else if (Double.isNaN(xa[f]))
+				diff = missingDifference(f, xb[f]);
+			else if (Double.isNaN(xb[f]))
+				diff = missingDifference(f, xa[f]);
+			else
+				diff = xa[f] - xb[f];
+
+			dist += diff * diff;
+		}
+
+		return dist;
+	}
+
+	/**
+	 * Difference between a missing value and a known one: the largest possible.
+	 *
+	 * @param f Index of the feature.
+	 * @param value Known value.
+	 * @return Difference.
+	 */
+	protected double missingDifference(int f, double value) {
+		if (m_Normalize)
+			return value < 0.5 ? 1 - value : value;
+
+		return Math.max(m_Max[f] - value, value - m_Min[f]);
+	}
+
+	/**
+	 * Returns the sequence 0, 1, ..., n-1.
+	 *
+	 * @param n Length of the sequence.
+	 * @return Sequence.
+	 */
+	private static int[] sequence(int n) {
+		int[] seq = new int[n];
+
+		for (int i = 0; i < n; i++)
+			seq[i] = i;
+
+		return seq;
+	}
+}
@@ -0,0 +1,547 @@
+/*
+ * KDTree.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.Arrays;
+
+/**
+ * k-d tree over the instances of a feature space, used to stream the
+ * neighbours of an instance in increasing order of distance.<br>
+ * The tree is split by every feature. The distance of a node is a
+ * lower bound of the distance of a view to its instances, computed feature
+ * by feature as weka does: the distance to the range of the known values of
+ * the node (or to a missing value, the nearest one), and for a nominal
+ * feature 1 if the value shared by the node is different. The labels only
+ * add to it. Hence the stream returns exactly the order of the view, ties
+ * solved by index.
+ * <p>
+ *
+ * @version 20261018
+ */
+public class KDTree {
+
+	/**
+	 * Maximum number of instances in a leaf.
+	 */
+	protected static final int LEAF_SIZE = 16;
+
+	/**
+	 * Feature space of the instances.
+	 */
+	protected FeatureSpace m_Space;
+
+	/**
+	 * Number of features.
+	 */
+	protected int m_NumFeatures;
+
+	/**
+	 * Features of every instance, NaN if missing.
+	 */
+	protected double[] m_Coords;
+
+	/**
+	 * Instances sorted so that every node is a range.
+	 */
+	protected int[] m_Order;
+
+	/**
+	 * Range of every node in m_Order.
+	 */
+	protected int[] m_Start, m_End;
+
+	/**
+	 * Children of every node, -1 for the leaves.
+	 */
+	protected int[] m_Left, m_Right;
+
+	/**
+	 * Range of the known values of every node and numeric feature. For a
+	 * nominal feature both are the value shared by the node, NaN if its
+	 * values are different or missing.
+	 */
+	protected double[] m_Lower, m_Upper;
+
+	/**
+	 * Whether every node has missing values in every feature or not.
+	 */
+	protected boolean[] m_Missing;
+
+	/**
+	 * Number of nodes.
+	 */
+	protected int m_NumNodes;
+
+	/**
+	 * Builds the tree of a feature space.
+	 *
+	 * @param space Feature space.
+	 */
+	protected KDTree(FeatureSpace space) {
+		int n = space.numInstances(), capacity = 4 * (n / LEAF_SIZE + 1);
+
+		m_Space = space;
+		m_NumFeatures = space.numFeatures();
+		m_Coords = new double[n * m_NumFeatures];
+		m_Order = new int[n];
+		m_Start = new int[capacity];
+		m_End = new int[capacity];
+		m_Left = new int[capacity];
+		m_Right = new int[capacity];
+		m_Lower = new double[capacity * m_NumFeatures];
+		m_Upper = new double[capacity * m_NumFeatures];
+		m_Missing = new boolean[capacity * m_NumFeatures];
+
+		for (int i = 0; i < n; i++) {
+			m_Order[i] = i;
+
+			for (int f = 0; f < m_NumFeatures; f++)
+				m_Coords[i * m_NumFeatures + f] = space.feature(i, f);
+		}
+
+		build(0, n);
+	}
+
+	/**
+	 * Builds the tree of a feature space.
+	 *
+	 * @param space Feature space.
+	 * @return The tree, null if there are no features.
+	 */
+	public static KDTree build(FeatureSpace space) {
+		if (space.numFeatures() == 0 || space.numInstances() == 0)
+			return null;
+
+		return new KDTree(space);
+	}
+
+	/**
+	 * Builds the subtree of a range of instances, split by the median of its
+	 * widest feature (the missing values go last). The width of a nominal
+	 * feature is 1, its contribution to the distance, if the node has
+	 * different values.
+	 *
+	 * @param from First position of the range.
+	 * @param to Last position of the range (exclusive).
+	 * @return Index of the node.
+	 */
+	private int build(int from, int to) {
+		int node = m_NumNodes++, split = -1, mid, pos;
+		double value, width, maxWidth = 0;
+
+		m_Start[node] = from;
+		m_End[node] = to;
+		m_Left[node] = -1;
+		m_Right[node] = -1;
+
+		for (int f = 0; f < m_NumFeatures; f++) {
+			pos = node * m_NumFeatures + f;
+			m_Lower[pos] = Double.POSITIVE_INFINITY;
+			m_Upper[pos] = Double.NEGATIVE_INFINITY;
+
+			for (int p = from; p < to; p++) {
+				value = m_Coords[m_Order[p] * m_NumFeatures + f];
+
+				if (Double.isNaN(value)) {
+					m_Missing[pos] = true;
+				}
+				else {
+					m_Lower[pos] = Math.min(m_Lower[pos], value);
+					m_Upper[pos] = Math.max(m_Upper[pos], value);
+				}
+			}
+
+			if (m_Space.isNominal(f)) {
+				width = (m_Upper[pos] > m_Lower[pos] ||
+				         (m_Missing[pos] && m_Upper[pos] >= m_Lower[pos])) ? 1 : 0;
+
+				if (m_Missing[pos] || m_Lower[pos] != m_Upper[pos]) {
+					m_Lower[pos] = Double.NaN;
+					m_Upper[pos] = Double.NaN;
+				}
+			}
+			else {
+				width = m_Upper[pos] > m_Lower[pos] ? m_Upper[pos] - m_Lower[pos] : 0;
+			}
+
+			if (width > maxWidth) {
+				maxWidth = width;
+				split = f;
+			}
+		}
+
+		// Small enough, or all the known values at the same point
+		if (to - from <= LEAF_SIZE || split == -1)
+			return node;
+
+		mid = (from + to) >>> 1;
+		select(from, to, mid, split);
+		m_Left[node] = build(from, mid);
+		m_Right[node] = build(mid, to);
+
+		return node;
+	}
+
+	/**
+	 * Partially sorts a range of instances by a feature, so that the k-th
+	 * position holds the instance it would have in the sorted range. The
+	 * missing values are sorted as infinite.
+	 *
+	 * @param from First position of the range.
+	 * @param to Last position of the range (exclusive).
+	 * @param k Position to select.
+	 * @param f Feature.
+	 */
+	private void select(int from, int to, int k, int f) {
+		int i, j, tmp;
+		double pivot;
+
+		to--;
+
+		while (from < to) {
+			pivot = key(m_Order[(from + to) >>> 1], f);
+			i = from;
+			j = to;
+
+			while (i <= j) {
+				while (key(m_Order[i], f) < pivot)
+					i++;
+				while (key(m_Order[j], f) > pivot)
+					j--;
+
+				if (i <= j) {
+					tmp = m_Order[i];
+					m_Order[i++] = m_Order[j];
+					m_Order[j--] = tmp;
+				}
+			}
+
+			if (k <= j)
+				to = j;
+			else if (k >= i)
+				from = i;
+			else
+				return;
+		}
+	}
+
+	/**
+	 * Value of a feature used to sort an instance, infinite if it is missing.
+	 *
+	 * @param i Index of the instance.
+	 * @param f Feature.
+	 * @return Sort key.
+	 */
+	private double key(int i, int f) {
+		double value = m_Coords[i * m_NumFeatures + f];
+
+		return Double.isNaN(value) ? Double.POSITIVE_INFINITY : value;
+	}
+
+	/**
+	 * Returns the feature space of the tree.
+	 *
+	 * @return Feature space.
+	 */
+	public FeatureSpace space() {
+
+		return m_Space;
+	}
+
+	/**
+	 * Lower bound of the squared feature distance from an instance to the
+	 * instances of a node. Every term is not greater than the one of weka's
+	 * distance and they are added in the same order, so the bound holds with
+	 * rounding too.
+	 *
+	 * @param target Index of the instance.
+	 * @param node Index of the node.
+	 * @return Lower bound of the distance to the instances of the node.
+	 */
+	protected double boxDistance(int target, int node) {
+		double dist = 0, x, diff;
+		int pos;
+
+		for (int f = 0; f < m_NumFeatures; f++) {
+			x = m_Coords[target * m_NumFeatures + f];
+			pos = node * m_NumFeatures + f;
+
+			if (m_Space.isNominal(f)) {
+				// A missing nominal value is always different
+				if (Double.isNaN(x) || (!Double.isNaN(m_Lower[pos]) && m_Lower[pos] != x))
+					dist += 1;
+
+				continue;
+			}
+
+			if (Double.isNaN(x))
+				continue;
+
+			if (x < m_Lower[pos])
+				diff = m_Lower[pos] - x;
+			else if (x > m_Upper[pos])
+				diff = x - m_Upper[pos];
+			else
+				continue;
+
+			if (m_Missing[pos])
+				diff = Math.min(diff, m_Space.missingDifference(f, x));
+
+			dist += diff * diff;
+		}
+
+		return dist;
+	}
+
+	/**
+	 * Returns an instance in the lune of p and q, nearer to both than they
+	 * are to each other. Only the nodes whose lower bounds to both ends are
+	 * below their distance are searched.
+	 *
+	 * @param view View whose distances are used, over the space of the tree.
+	 * @param p Index of the first end.
+	 * @param q Index of the second end.
+	 * @param dist Distance between p and q.
+	 * @return Index of the instance, -1 if the lune is empty.
+	 */
+	public int lune(SingleLabelView view, int p, int q, double dist) {
+
+		return lune(view, p, q, dist, 0);
+	}
+
+	/**
+	 * Searches an instance in the lune of p and q among the instances of a
+	 * node.
+	 *
+	 * @param view View whose distances are used.
+	 * @param p Index of the first end.
+	 * @param q Index of the second end.
+	 * @param dist Distance between p and q.
+	 * @param node Index of the node.
+	 * @return Index of the instance, -1 if there is none.
+	 */
+	private int lune(SingleLabelView view, int p, int q, double dist, int node) {
+		int found, r;
+
+		if (boxDistance(p, node) >= dist || boxDistance(q, node) >= dist)
+			return -1;
+
+		if (m_Left[node] != -1) {
+			found = lune(view, p, q, dist, m_Left[node]);
+
+			return found != -1 ? found : lune(view, p, q, dist, m_Right[node]);
+		}
+
+		for (int i = m_Start[node]; i < m_End[node]; i++) {
+			r = m_Order[i];
+
+			if (r != p && r != q && view.distance(p, r) < dist && view.distance(q, r) < dist)
+				return r;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Incremental nearest neighbour search: the neighbours of an instance are
+	 * returned one by one, sorted by distance and index. The nodes and the
+	 * instances are kept in a heap, a node goes before the instances at the
+	 * same distance, so an instance is only returned when no closer one is
+	 * left. It isn't thread safe, every thread uses its own stream.
+	 */
+	public static class Stream {
+
+		/**
+		 * Tree to search.
+		 */
+		protected KDTree m_Tree;
+
+		/**
+		 * View whose distances are used.
+		 */
+		protected SingleLabelView m_View;
+
+		/**
+		 * Instance whose neighbours are searched.
+		 */
+		protected int m_Target;
+
+		/**
+		 * Keys of the heap (distances).
+		 */
+		protected double[] m_Keys = new double[64];
+
+		/**
+		 * Items of the heap: instances, or nodes as -(node + 1).
+		 */
+		protected int[] m_Items = new int[64];
+
+		/**
+		 * Number of items in the heap.
+		 */
+		protected int m_Size;
+
+		/**
+		 * Last neighbour returned.
+		 */
+		protected int m_Id;
+
+		/**
+		 * Distance to the last neighbour returned.
+		 */
+		protected double m_Distance;
+
+		/**
+		 * Creates a stream over a tree.
+		 *
+		 * @param tree Tree to search.
+		 */
+		public Stream(KDTree tree) {
+			m_Tree = tree;
+		}
+
+		/**
+		 * Starts the search of the neighbours of an instance.
+		 *
+		 * @param view View whose distances are used, over the space of the tree.
+		 * @param target Index of the instance.
+		 */
+		public void start(SingleLabelView view, int target) {
+			m_View = view;
+			m_Target = target;
+			m_Size = 0;
+			push(m_Tree.boxDistance(target, 0), -1);
+		}
+
+		/**
+		 * Moves to the next neighbour.
+		 *
+		 * @return False if there are no more neighbours.
+		 */
+		public boolean next() {
+			int item, node, instance;
+
+			while (m_Size > 0) {
+				item = m_Items[0];
+				m_Distance = m_Keys[0];
+				pop();
+
+				if (item >= 0) {
+					m_Id = item;
+
+					return true;
+				}
+
+				node = -item - 1;
+
+				if (m_Tree.m_Left[node] != -1) {
+					push(m_Tree.boxDistance(m_Target, m_Tree.m_Left[node]), -m_Tree.m_Left[node] - 1);
+					push(m_Tree.boxDistance(m_Target, m_Tree.m_Right[node]), -m_Tree.m_Right[node] - 1);
+					continue;
+				}
+
+				for (int p = m_Tree.m_Start[node]; p < m_Tree.m_End[node]; p++) {
+					instance = m_Tree.m_Order[p];
+
+					if (instance != m_Target)
+						push(m_View.distance(m_Target, instance), instance);
+				}
+			}
+
+			return false;
+		}
+
+		/**
+		 * Returns the current neighbour.
+		 *
+		 * @return Index of the neighbour.
+		 */
+		public int id() {
+
+			return m_Id;
+		}
+
+		/**
+		 * Returns the distance to the current neighbour.
+		 *
+		 * @return Squared distance.
+		 */
+		public double distance() {
+
+			return m_Distance;
+		}
+
+		/**
+		 * Whether an item goes before another in the heap.
+		 */
+		private boolean before(double keyA, int itemA, double keyB, int itemB) {
+
+			return keyA < keyB || (keyA == keyB && itemA < itemB);
+		}
+
+		/**
+		 * Adds an item to the heap.
+		 */
+		private void push(double key, int item) {
+			int pos = m_Size++, parent;
+
+			if (m_Size > m_Keys.length) {
+				m_Keys = Arrays.copyOf(m_Keys, m_Keys.length * 2);
+				m_Items = Arrays.copyOf(m_Items, m_Items.length * 2);
+			}
+
+			while (pos > 0) {
+				parent = (pos - 1) >>> 1;
+
+				if (!before(key, item, m_Keys[parent], m_Items[parent]))
+					break;
+
+				m_Keys[pos] = m_Keys[parent];
+				m_Items[pos] = m_Items[parent];
+				pos = parent;
+			}
+
+			m_Keys[pos] = key;
+			m_Items[pos] = item;
+		}
+
+		/**
+		 * Removes the first item of the heap.
+		 */
+		private void pop() {
+			double key = m_Keys[--m_Size];
+			int item = m_Items[m_Size], pos = 0, child;
+
+			while ((child = 2 * pos + 1) < m_Size) {
+				if (child + 1 < m_Size &&
+				    before(m_Keys[child + 1], m_Items[child + 1], m_Keys[child], m_Items[child]))
+					child++;
+
+				if (!before(m_Keys[child], m_Items[child], key, item))
+					break;
+
+				m_Keys[pos] = m_Keys[child];
+				m_Items[pos] = m_Items[child];
+				pos = child;
+			}
+
+			m_Keys[pos] = key;
+			m_Items[pos] = item;
+		}
+	}
+}
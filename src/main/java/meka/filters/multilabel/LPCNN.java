@@ -18,16 +18,21 @@
  */
 package meka.filters.multilabel;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.Vector;
 
-import weka.core.Instance;
 import weka.core.Instances;
-import weka.core.neighboursearch.LinearNNSearch;
-import weka.core.neighboursearch.NearestNeighbourSearch;
+import weka.core.Option;
+import weka.core.Utils;
 
 /**
  * CNN instance selection for ML by means of label powerset.<br>
  * <p>
+ * Valid options are:
+ * <p>
+ * batch passes checked in parallel <br>
  * 
  * @author Álvar Arnaiz-González
  * @version 20171226
@@ -36,6 +41,77 @@ public class LPCNN extends LPIS {
 
 	private static final long serialVersionUID = -9154050780637146555L;
 
+	/**
+	 * Whether every pass is checked at once (in parallel) or not.
+	 */
+	protected boolean m_Batch = false;
+
+	public String batchTipText() {
+		return "Batch passes: every pass is checked in parallel against the reduced set, then "
+		     + "the misclassified instances are added in order, skipping the ones absorbed by "
+		     + "the instances added before. The results differ slightly from the sequential CNN.";
+	}
+
+	public void setBatch(boolean batch) {
+		m_Batch = batch;
+	}
+
+	public boolean getBatch() {
+
+		return m_Batch;
+	}
+
+	/**
+	 * Returns an enumeration describing the available options.
+	 * 
+	 * @return an enumeration of all the available options.
+	 */
+	public Enumeration<Option> listOptions() {
+		ArrayList<Option> options = new ArrayList<Option>(1);
+
+		options.add(new Option("\tBatch passes, checked in parallel. The results differ\n"
+		                     + "\tslightly from the default sequential CNN.", "W", 0, "-W"));
+
+		Enumeration<Option> enu = super.listOptions();
+
+		while (enu.hasMoreElements())
+			options.add(enu.nextElement());
+
+		return Collections.enumeration(options);
+	}
+
+	/**
+	 * Parses a given list of options.
+	 * 
+	 * @param options
+	 *            the list of options as an array of strings.
+	 * @throws Exception
+	 *             if an option is not supported.
+	 */
+	public void setOptions(String[] options) throws Exception {
+		setBatch(Utils.getFlag('W', options));
+
+		super.setOptions(options);
+	}
+
+	/**
+	 * Gets the current settings of the Classifier.
+	 * 
+	 * @return an array of strings suitable for passing to setOptions
+	 */
+	public String[] getOptions() {
+		Vector<String> result = new Vector<String>();
+		String[] options = super.getOptions();
+
+		for (int i = 0; i < options.length; i++)
+			result.add(options[i]);
+
+		if (getBatch())
+			result.add("-W");
+
+		return result.toArray(new String[result.size()]);
+	}
+
 	@Override
 	public String globalInfo() {
 
@@ -48,56 +124,19 @@ public class LPCNN extends LPIS {
 		return new Instances(inputFormat, 0);
 	}
 
+	@Override
 	protected boolean[] applyIS(Instances instances) throws Exception {
-		NearestNeighbourSearch nnSearch;
-		Instances reducedSet = new Instances(instances, instances.numInstances() / 10);
-		Instance inst;
-		Vector<Double> classSelected = new Vector<Double>(instances.classAttribute().numValues());
-		boolean[] selected = new boolean[instances.numInstances()];
-		boolean[] remove = new boolean[instances.numInstances()];
-
-		for (int i = 0; i < instances.numInstances(); i++)
-			selected[i] = false;
-
-		// Starts with an instance of each class.
-		for (int i = 0; i < instances.numInstances(); i++) {
-			inst = instances.instance(i);
-
-			// If any instance of the current's class has been already selected
-			if (!classSelected.contains(inst.classValue())) {
-				selected[i] = true;
-				reducedSet.add(inst);
-				classSelected.add(inst.classValue());
-			}
-
-			// Stop if all classes have been already selected
-			if (classSelected.size() == instances.classAttribute().numValues())
-				i = instances.numInstances();
-		}
-
-		// Init the NN search.
-		nnSearch = new LinearNNSearch(reducedSet);
-
-		// Run CNN.
-		for (int i = 0; i < instances.numInstances(); i++) {
-			if (!selected[i]) {
-				inst = instances.instance(i);
-				if (nnSearch.nearestNeighbour(inst).classValue() != inst.classValue()) {
-					selected[i] = true;
-					reducedSet.add(inst);
-					i = 0;
-					nnSearch = new LinearNNSearch(reducedSet);
-				}
-			}
-		}
-
-		// Accumulate votes in remove.
-		for (int i = 0; i < instances.numInstances(); i++) {
-			if (!selected[i])
-				remove[i] = true;
-			else
-				remove[i] = false;
-		}
+
+		return applyIS(new SingleLabelView(instances, normalizeDistances()));
+	}
+
+	@Override
+	protected boolean[] applyIS(SingleLabelView view) throws Exception {
+		boolean[] remove = m_Batch ? BRCNN.batchCondense(view, m_Threads) : BRCNN.condense(view, m_Threads);
+
+		// Remove the instances that haven't been selected.
+		for (int i = 0; i < remove.length; i++)
+			remove[i] = !remove[i];
 
 		return remove;
 	}
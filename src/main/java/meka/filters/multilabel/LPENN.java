@@ -26,8 +26,6 @@ import java.util.Vector;
 import weka.core.Instances;
 import weka.core.Option;
 import weka.core.Utils;
-import weka.core.neighboursearch.LinearNNSearch;
-import weka.core.neighboursearch.NearestNeighbourSearch;
 
 /**
  * ENN instance selection for ML by means of local powerset.<br>
@@ -35,6 +33,10 @@ import weka.core.neighboursearch.NearestNeighbourSearch;
  * Valid options are:
  * <p>
  * number of nearest neighbours <br>
+ * batch (Wilson) editing instead of sequential editing <br>
+ * <p>
+ * The selections of batch editing (-W) for several values of k can be
+ * obtained at once with sweepSelections.
  * 
  * @author Álvar Arnaiz-González
  * @version 20171226
@@ -61,16 +63,39 @@ public class LPENN extends LPIS {
 		return m_K;
 	}
 
+	/**
+	 * Whether all the instances are edited at once (batch) or not (sequential).
+	 */
+	protected boolean m_Batch = false;
+
+	public String batchTipText() {
+		return "Batch (Wilson) editing: every instance is judged against the whole data set "
+		     + "and the misclassified ones are removed at once. The neighbours are computed "
+		     + "in parallel. The results differ from the sequential editing.";
+	}
+
+	public void setBatch(boolean batch) {
+		m_Batch = batch;
+	}
+
+	public boolean getBatch() {
+
+		return m_Batch;
+	}
+
 	/**
 	 * Returns an enumeration describing the available options.
 	 * 
 	 * @return an enumeration of all the available options.
 	 */
 	public Enumeration<Option> listOptions() {
-		ArrayList<Option> options = new ArrayList<Option>(1);
+		ArrayList<Option> options = new ArrayList<Option>(2);
 
 		options.add(new Option("\tNumber of nearest neighbours.", "K", 0, "-K"));
 
+		options.add(new Option("\tBatch (Wilson) editing, computed in parallel. The results\n"
+		                     + "\tdiffer from the default sequential editing.", "W", 0, "-W"));
+
 		Enumeration<Option> enu = super.listOptions();
 
 		while (enu.hasMoreElements())
@@ -97,6 +122,8 @@ public class LPENN extends LPIS {
 		else
 			setK(3);
 
+		setBatch(Utils.getFlag('W', options));
+
 		super.setOptions(options);
 	}
 
@@ -115,6 +142,9 @@ public class LPENN extends LPIS {
 		result.add("-K");
 		result.add("" + getK());
 
+		if (getBatch())
+			result.add("-W");
+
 		return result.toArray(new String[result.size()]);
 	}
 
@@ -124,25 +154,54 @@ public class LPENN extends LPIS {
 		return "ENN instance selection by using local powerset.";
 	}
 
-	@Override
-	protected boolean[] applyIS(Instances instances) throws Exception {
-		NearestNeighbourSearch nnSearch = new LinearNNSearch(instances);
-		Instances nn;
-		boolean[] remove = new boolean[instances.numInstances()];
-
-		for (int i = 0; i < instances.numInstances(); i++)
-			remove[i] = false;
-
-		for (int i = instances.numInstances() - 1; i >= 0; i--) {
-			nn = nnSearch.kNearestNeighbours(instances.instance(i), m_K);
-			
-			if (BRENN.isMisclassified (instances.instance(i), nn)) {
-				remove[i] = true;
-				instances.remove(i);
-				nnSearch = new LinearNNSearch(instances);
+	/**
+	 * Computes the selection of batch ENN for every k from 1 to maxK. The maxK
+	 * nearest neighbours are computed once and every k uses a prefix of them.
+	 * As in process, if all the instances are removed the first one is kept.
+	 * The selections are the ones of runs with -W, whatever the batch option
+	 * of the filter, and don't match the ones of the default sequential -K k
+	 * runs, whose neighbours depend on the previous removals.
+	 * 
+	 * @param instances Multi-label data set.
+	 * @param maxK Maximum number of nearest neighbours.
+	 * @return Selected instances, one mask per k (k-1).
+	 * @throws Exception If something goes wrong.
+	 */
+	public boolean[][] sweepSelections(Instances instances, int maxK) throws Exception {
+		SingleLabelView view = labelsetView(instances);
+		boolean[][] selected = BRENN.batchSweep(new NeighbourGraph(view, maxK, m_Threads), 
+		                                        view.classes(), view.numClasses());
+
+		boolean empty;
+
+		for (int k = 0; k < maxK; k++) {
+			empty = true;
+
+			for (int i = 0; i < selected[k].length; i++) {
+				selected[k][i] = !selected[k][i];
+				empty &= !selected[k][i];
 			}
+
+			if (empty && selected[k].length > 0)
+				selected[k][0] = true;
 		}
 
-		return remove;
+		return selected;
+	}
+
+	@Override
+	protected boolean[] applyIS(Instances instances) throws Exception {
+
+		return applyIS(new SingleLabelView(instances, normalizeDistances()));
+	}
+
+	@Override
+	protected boolean[] applyIS(SingleLabelView view) throws Exception {
+
+		if (m_Batch)
+			return BRENN.batchEdit(new NeighbourGraph(view, m_K, m_Threads), view.classes(),
+			                       view.numClasses());
+
+		return BRENN.edit(view, m_K);
 	}
 }
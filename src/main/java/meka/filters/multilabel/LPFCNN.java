@@ -0,0 +1,59 @@
+/*
+ * LPFCNN.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain 
+ *     
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *     
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *     
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import weka.core.Instances;
+
+/**
+ * FCNN (fast condensed nearest neighbour) instance selection for ML by means
+ * of label powerset.<br>
+ * It implements FCNN1 of F. Angiulli, see BRFCNN.
+ * <p>
+ * Valid options are:
+ * <p>
+ * number of threads <br>
+ * 
+ * @version 20261018
+ */
+public class LPFCNN extends LPIS {
+
+	private static final long serialVersionUID = 2781449936510232085L;
+
+	@Override
+	public String globalInfo() {
+
+		return "FCNN instance selection by using local powerset.";
+	}
+
+	@Override
+	protected boolean[] applyIS(Instances instances) throws Exception {
+
+		return applyIS(new SingleLabelView(instances, normalizeDistances()));
+	}
+
+	@Override
+	protected boolean[] applyIS(SingleLabelView view) throws Exception {
+		boolean[] remove = BRFCNN.fastCondense(view, m_Threads);
+
+		// Remove the instances that haven't been selected.
+		for (int i = 0; i < remove.length; i++)
+			remove[i] = !remove[i];
+
+		return remove;
+	}
+}
@@ -18,14 +18,25 @@
  */
 package meka.filters.multilabel;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Vector;
+
 import meka.core.PSUtils;
 import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
 import weka.filters.SimpleBatchFilter;
 
 /**
  * Instance selection for ML by means of label powerset.<br>
  * The code of LP is from LC.java of Jesse Read.
  * <p>
+ * Valid options are:
+ * <p>
+ * number of threads <br>
  * 
  * @author Álvar Arnaiz-González
  * @version 20171226
@@ -34,6 +45,84 @@ public abstract class LPIS extends SimpleBatchFilter {
 
 	private static final long serialVersionUID = -9154050711637146555L;
 
+	/**
+	 * Number of threads, the global setting if not positive.
+	 */
+	protected int m_Threads = 0;
+
+	public void setThreads(int threads) {
+		m_Threads = threads;
+	}
+
+	public int getThreads() {
+
+		return m_Threads;
+	}
+
+	public String threadsTipText() {
+		return "Number of threads (0: the " + Parallel.THREADS_PROPERTY
+		     + " property or the number of processors).";
+	}
+
+	/**
+	 * Returns an enumeration describing the available options.
+	 * 
+	 * @return an enumeration of all the available options.
+	 */
+	public Enumeration<Option> listOptions() {
+		ArrayList<Option> options = new ArrayList<Option>(1);
+
+		options.add(new Option("\tNumber of threads (default: 0, global setting).", "T", 1, "-T <threads>"));
+
+		Enumeration<Option> enu = super.listOptions();
+
+		while (enu.hasMoreElements())
+			options.add(enu.nextElement());
+
+		return Collections.enumeration(options);
+	}
+
+	/**
+	 * Parses a given list of options.
+	 * 
+	 * @param options
+	 *            the list of options as an array of strings.
+	 * @throws Exception
+	 *             if an option is not supported.
+	 */
+	public void setOptions(String[] options) throws Exception {
+		String tmpStr;
+
+		tmpStr = Utils.getOption('T', options);
+
+		if (tmpStr.length() > 0)
+			setThreads(Integer.parseInt(tmpStr));
+		else
+			setThreads(0);
+
+		super.setOptions(options);
+	}
+
+	/**
+	 * Gets the current settings of the Classifier.
+	 * 
+	 * @return an array of strings suitable for passing to setOptions
+	 */
+	public String[] getOptions() {
+		Vector<String> result = new Vector<String>();
+		String[] options = super.getOptions();
+
+		for (int i = 0; i < options.length; i++)
+			result.add(options[i]);
+
+		if (getThreads() > 0) {
+			result.add("-T");
+			result.add("" + getThreads());
+		}
+
+		return result.toArray(new String[result.size()]);
+	}
+
 	@Override
 	public String globalInfo() {
 
@@ -48,43 +137,99 @@ public abstract class LPIS extends SimpleBatchFilter {
 
 	@Override
 	protected Instances process(Instances instances) throws Exception {
-		Instances filtered = new Instances(instances);
+		Instances filtered;
+		SingleLabelView view;
+		BitSet keep;
 		boolean remove[];
 
 		// Only change first batch of data
 		if (isFirstBatchDone())
 			return new Instances(instances);
 
-		int L = instances.classIndex();
-
 		// Transform Instances
 		if (getDebug())
 			System.out.print("Transforming Instances ...");
 
-		Instances instancesSingleLbl = PSUtils.LCTransformation(instances, L);
+		view = labelsetView(instances);
 
 		if (getDebug())
-			System.out.print("Filtering data set (" + "K = " + instancesSingleLbl.attribute(0).numValues() + ", N = "
-					+ instancesSingleLbl.numInstances() + "), ...");
-
-		// Apply instance selection algorithm over single label data set.
-		remove = applyIS(instancesSingleLbl);
-
-		// Remove undesired instances.
-		for (int i = instances.numInstances() - 1; i >= 0; i--)
-			if (remove[i])
-				filtered.remove(i);
-		
-		if (filtered.numInstances() == 0) {
+			System.out.print("Filtering data set (" + "K = " + view.numClasses() + ", N = "
+					+ view.numInstances() + "), ...");
+
+		// Apply instance selection algorithm over the labelsets as classes.
+		remove = applyIS(view);
+
+		// Mark the instances to keep.
+		keep = new BitSet(instances.numInstances());
+
+		for (int i = 0; i < instances.numInstances(); i++)
+			if (!remove[i])
+				keep.set(i);
+
+		if (keep.isEmpty()) {
 			System.err.println("All instances have been removed, selected the first one instead");
-			filtered.add(instances.get(0));
+			keep.set(0);
 		}
 
+		// Copy the kept instances in a single pass.
+		filtered = new Instances(instances, keep.cardinality());
+
+		for (int i = keep.nextSetBit(0); i >= 0; i = keep.nextSetBit(i + 1))
+			filtered.add(instances.get(i));
+
 		if (getDebug())
 			System.out.println("Done, final size: " + filtered.numInstances());
 
 		return filtered;
 	}
 
+	/**
+	 * Returns the label powerset view of a multi-label data set: the classes
+	 * are the labelsets, encoded from the packed labels without building a
+	 * single label data set.
+	 * 
+	 * @param instances Multi-label data set.
+	 * @return View with a class per distinct labelset.
+	 */
+	protected SingleLabelView labelsetView(Instances instances) {
+		FeatureSpace space = new FeatureSpace(instances, instances.classIndex(), normalizeDistances());
+		LabelsetEncoder encoder = new LabelsetEncoder(space);
+
+		return new SingleLabelView(space, encoder.classes(), encoder.numClasses());
+	}
+
+	/**
+	 * Whether the distances of the IS method are normalised or not.
+	 * 
+	 * @return True, the distances are normalised by default.
+	 */
+	protected boolean normalizeDistances() {
+
+		return true;
+	}
+
+	/**
+	 * Applies the instance selection to a single label data set, as the ones
+	 * built by LCTransformation or RA<i>k</i>EL. Should be overwritten.
+	 * 
+	 * @param instances Single label data set.
+	 * @return Instances to remove.
+	 * @throws Exception If something goes wrong.
+	 */
 	protected abstract boolean[] applyIS(Instances instances) throws Exception;
+
+	/**
+	 * Applies the instance selection to a single label problem. By default,
+	 * the single label data set of the multi-label data set of the view is
+	 * generated and applyIS(Instances) is called.
+	 * 
+	 * @param view Instances and their classes.
+	 * @return Instances to remove.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected boolean[] applyIS(SingleLabelView view) throws Exception {
+		Instances instances = view.space().instances();
+
+		return applyIS(PSUtils.LCTransformation(instances, instances.classIndex()));
+	}
 }
@@ -0,0 +1,123 @@
+/*
+ * LPLSBo.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *     
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *     
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *     
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Vector;
+
+import weka.core.Option;
+import weka.core.Utils;
+
+/**
+ * LSBo instance selection for ML by means of local powerset.<br>
+ * <p>
+ * Valid options are:
+ * <p>
+ * remove noise with LSSm before LSBo <br>
+ * linear or k-d tree neighbour search <br>
+ * 
+ * @version 20261018
+ */
+public class LPLSBo extends LPLSS {
+
+	private static final long serialVersionUID = -2763190493829177354L;
+
+	/**
+	 * Whether or not LSSm is applied before LSBo.
+	 */
+	protected boolean m_NoiseFilter = false;
+
+	public String noiseFilterTipText() {
+		return "Remove the noisy instances with LSSm before applying LSBo.";
+	}
+
+	public void setNoiseFilter(boolean noiseFilter) {
+		m_NoiseFilter = noiseFilter;
+	}
+
+	public boolean getNoiseFilter() {
+
+		return m_NoiseFilter;
+	}
+
+	/**
+	 * Returns an enumeration describing the available options.
+	 * 
+	 * @return an enumeration of all the available options.
+	 */
+	public Enumeration<Option> listOptions() {
+		ArrayList<Option> options = new ArrayList<Option>(1);
+
+		options.add(new Option("\tRemove noise with LSSm before LSBo.", "M", 0, "-M"));
+
+		Enumeration<Option> enu = super.listOptions();
+
+		while (enu.hasMoreElements())
+			options.add(enu.nextElement());
+
+		return Collections.enumeration(options);
+	}
+
+	/**
+	 * Parses a given list of options.
+	 * 
+	 * @param options
+	 *            the list of options as an array of strings.
+	 * @throws Exception
+	 *             if an option is not supported.
+	 */
+	public void setOptions(String[] options) throws Exception {
+		setNoiseFilter(Utils.getFlag('M', options));
+
+		super.setOptions(options);
+	}
+
+	/**
+	 * Gets the current settings of the Classifier.
+	 * 
+	 * @return an array of strings suitable for passing to setOptions
+	 */
+	public String[] getOptions() {
+		Vector<String> result = new Vector<String>();
+		String[] options = super.getOptions();
+
+		for (int i = 0; i < options.length; i++)
+			result.add(options[i]);
+
+		if (getNoiseFilter())
+			result.add("-M");
+
+		return result.toArray(new String[result.size()]);
+	}
+
+	@Override
+	public String globalInfo() {
+
+		return "LSBo instance selection by using local powerset.";
+	}
+
+	@Override
+	protected boolean[] applyIS(SingleLabelView view) throws Exception {
+		KDTree tree = m_TreeSearch ? KDTree.build(view.space()) : null;
+
+		return BRLSBo.select(view, new LocalSets(view, tree, m_Threads), tree, m_NoiseFilter,
+		                     m_Threads);
+	}
+}
@@ -19,12 +19,20 @@
 package meka.filters.multilabel;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Vector;
 
 import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
 
 /**
  * LSS instance selection for ML by means of local powerset.<br>
  * <p>
+ * Valid options are:
+ * <p>
+ * linear or k-d tree neighbour search <br>
  * 
  * @author Álvar Arnaiz-González
  * @version 20171226
@@ -33,42 +41,108 @@ public class LPLSS extends LPIS {
 
 	private static final long serialVersionUID = -8947084609767341124L;
 
+	/**
+	 * Whether the local sets are found with a k-d tree or by linear scans.
+	 */
+	protected boolean m_TreeSearch = false;
+
+	public String treeSearchTipText() {
+		return "Find the local sets by streaming the neighbours from a k-d tree, instead of "
+		     + "comparing every instance with all the others (same result).";
+	}
+
+	public void setTreeSearch(boolean tree) {
+		m_TreeSearch = tree;
+	}
+
+	public boolean getTreeSearch() {
+
+		return m_TreeSearch;
+	}
+
+	/**
+	 * Returns an enumeration describing the available options.
+	 * 
+	 * @return an enumeration of all the available options.
+	 */
+	public Enumeration<Option> listOptions() {
+		ArrayList<Option> options = new ArrayList<Option>(1);
+
+		options.add(new Option("\tNeighbour search: linear (default) or tree (k-d tree).", 
+		                       "N", 1, "-N <linear|tree>"));
+
+		Enumeration<Option> enu = super.listOptions();
+
+		while (enu.hasMoreElements())
+			options.add(enu.nextElement());
+
+		return Collections.enumeration(options);
+	}
+
+	/**
+	 * Parses a given list of options.
+	 * 
+	 * @param options
+	 *            the list of options as an array of strings.
+	 * @throws Exception
+	 *             if an option is not supported.
+	 */
+	public void setOptions(String[] options) throws Exception {
+		String tmpStr;
+
+		tmpStr = Utils.getOption('N', options);
+
+		if (tmpStr.length() == 0 || tmpStr.equals("linear"))
+			setTreeSearch(false);
+		else if (tmpStr.equals("tree"))
+			setTreeSearch(true);
+		else
+			throw new Exception("Unknown neighbour search: " + tmpStr + " (linear or tree)");
+
+		super.setOptions(options);
+	}
+
+	/**
+	 * Gets the current settings of the Classifier.
+	 * 
+	 * @return an array of strings suitable for passing to setOptions
+	 */
+	public String[] getOptions() {
+		Vector<String> result = new Vector<String>();
+		String[] options = super.getOptions();
+
+		for (int i = 0; i < options.length; i++)
+			result.add(options[i]);
+
+		result.add("-N");
+		result.add(getTreeSearch() ? "tree" : "linear");
+
+		return result.toArray(new String[result.size()]);
+	}
+
 	@Override
 	public String globalInfo() {
 
 		return "LSS instance selection by using local powerset.";
 	}
 
+	@Override
+	protected boolean normalizeDistances() {
+
+		// DON'T normalize distances.
+		return false;
+	}
+
 	@Override
 	protected boolean[] applyIS(Instances instances) throws Exception {
-		ArrayList<Integer>[] mLocalSets = new ArrayList[instances.numInstances()];
-		int[] mNearestEnemies = new int[instances.numInstances()];
-		boolean[] remove = new boolean[instances.numInstances()];
-		int u = 0, h = 0;
-
-		for (int i = 0; i < instances.numInstances(); i++)
-			remove[i] = false;
-
-		// Sort the tmp set according to the distance to their nearest enemy.
-		BRLSS.computeLocalSets(instances, mLocalSets, mNearestEnemies);
-
-		// Computes u(e).
-		for (int i = 0; i < instances.numInstances(); i++) {
-			for (ArrayList<Integer> localset : mLocalSets)
-				for (int indexLocalSet : localset)
-					if (indexLocalSet == i)
-						u++;
-
-			// Computes h(e).
-			for (int ne : mNearestEnemies)
-				if (ne == i)
-					h++;
-
-			// If u(e) >= h(e) add i-th instance to the solution.
-			if (u < h)
-				remove[i] = true;
-		}
-
-		return remove;
+
+		return applyIS(new SingleLabelView(instances, normalizeDistances()));
+	}
+
+	@Override
+	protected boolean[] applyIS(SingleLabelView view) throws Exception {
+
+		return BRLSS.select(new LocalSets(view, m_TreeSearch ? KDTree.build(view.space()) : null,
+		                                  m_Threads));
 	}
 }
@@ -23,8 +23,6 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Vector;
 
-import weka.core.DistanceFunction;
-import weka.core.EuclideanDistance;
 import weka.core.Instances;
 import weka.core.Option;
 import weka.core.Utils;
@@ -35,6 +33,7 @@ import weka.core.Utils;
  * Valid options are:
  * <p>
  * whether or not use the 2nd order graph <br>
+ * exact or approximate relative neighbourhood graph <br>
  * 
  * @author Álvar Arnaiz-González
  * @version 20171226
@@ -61,16 +60,39 @@ public class LPRNGE extends LPIS {
 		return m_FirstOrder;
 	}
 
+	/**
+	 * Whether the graph is the exact relative neighbourhood graph or the
+	 * nearest successor approximation.
+	 */
+	protected boolean m_ExactGraph = false;
+
+	public String exactGraphTipText() {
+		return "Use the exact relative neighbourhood graph (computed in parallel) instead of "
+		     + "the nearest successor approximation.";
+	}
+
+	public void setExactGraph(boolean exact) {
+		m_ExactGraph = exact;
+	}
+
+	public boolean getExactGraph() {
+
+		return m_ExactGraph;
+	}
+
 	/**
 	 * Returns an enumeration describing the available options.
 	 * 
 	 * @return an enumeration of all the available options.
 	 */
 	public Enumeration<Option> listOptions() {
-		ArrayList<Option> options = new ArrayList<Option>(1);
+		ArrayList<Option> options = new ArrayList<Option>(2);
 
 		options.add(new Option("\tUse the first or second order graph.", "O", 0, "-O"));
 
+		options.add(new Option("\tRelative neighbourhood graph: exact or approx\n"
+		                     + "\t(nearest successor, default).", "G", 1, "-G <exact|approx>"));
+
 		Enumeration<Option> enu = super.listOptions();
 
 		while (enu.hasMoreElements())
@@ -97,6 +119,15 @@ public class LPRNGE extends LPIS {
 		else
 			setFirstOrder(1);
 
+		tmpStr = Utils.getOption('G', options);
+
+		if (tmpStr.length() == 0 || tmpStr.equals("approx"))
+			setExactGraph(false);
+		else if (tmpStr.equals("exact"))
+			setExactGraph(true);
+		else
+			throw new Exception("Unknown graph: " + tmpStr + " (exact or approx)");
+
 		super.setOptions(options);
 	}
 
@@ -115,6 +146,9 @@ public class LPRNGE extends LPIS {
 		result.add("-O");
 		result.add("" + getFirstOrder());
 
+		result.add("-G");
+		result.add(getExactGraph() ? "exact" : "approx");
+
 		return result.toArray(new String[result.size()]);
 	}
 
@@ -126,66 +160,14 @@ public class LPRNGE extends LPIS {
 
 	@Override
 	protected boolean[] applyIS(Instances instances) throws Exception {
-		DistanceFunction distance = new EuclideanDistance(instances);
-		Instances nn;
-		boolean[][] graph = new boolean[instances.numInstances()][instances.numInstances()];
-		boolean[] remove = new boolean[instances.numInstances()];
-		double min, dist;
-		int rel;
-
-		for (int i = 0; i < instances.numInstances(); i++)
-			remove[i] = false;
-
-		// Build the Relative Neighbourhood Graph (RNG)
-		for (int i = 0; i < instances.numInstances(); i++) {
-			min = Double.MAX_VALUE;
-			rel = -1;
-
-			for (int j = i; j < instances.numInstances(); j++) {
-				if (i != j) {
-					dist = distance.distance(instances.get(i), instances.get(j));
-
-					if (dist < min) {
-						min = dist;
-						rel = j;
-					}
-				}
-			}
-
-			if (rel != -1) {
-				graph[i][rel] = true;
-				graph[rel][i] = true;
-			}
-		}
-
-		// Discard instances according to the algorithm.
-		for (int i = 0; i < instances.numInstances(); i++) {
-			// Empty set of instances, capacity is not taken into account.
-			nn = new Instances(instances, 10);
-
-			for (int j = 0; j < instances.numInstances(); j++)
-				if (graph[i][j])
-					nn.add(instances.get(j));
-
-			if (BRENN.isMisclassified(instances.instance(i), nn)) {
-				// 1st order
-				if (m_FirstOrder == 1) {
-					remove[i] = true;
-				} else {
-					// 2nd order
-					for (int j = 0; j < instances.numInstances(); j++)
-						if (graph[i][j] && instances.get(i).classValue() == instances.get(j).classValue())
-							for (int k = 0; k < instances.numInstances(); k++)
-								if (graph[j][k])
-									nn.add(instances.get(k));
-
-					if (BRENN.isMisclassified(instances.instance(i), nn)) {
-						remove[i] = true;
-					}
-				}
-			}
-		}
-
-		return remove;
+
+		return applyIS(new SingleLabelView(instances, normalizeDistances()));
+	}
+
+	@Override
+	protected boolean[] applyIS(SingleLabelView view) throws Exception {
+
+		return BRRNGE.edit(view, BRRNGE.buildGraph(view, m_ExactGraph, m_Threads), m_FirstOrder,
+		                   m_Threads);
 	}
 }
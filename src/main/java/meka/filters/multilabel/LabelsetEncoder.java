@@ -0,0 +1,171 @@
+/*
+ * LabelsetEncoder.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.Arrays;
+
+/**
+ * Label powerset transformation over the packed labels of a feature space:
+ * every distinct labelset is a class. The labelsets are hashed into an open
+ * addressing table (linear probing) and numbered by order of appearance, so
+ * no string keys nor nominal attribute are built.
+ * <p>
+ *
+ * @version 20261018
+ */
+public class LabelsetEncoder {
+
+	/**
+	 * Number of words of every labelset.
+	 */
+	protected int m_Words;
+
+	/**
+	 * Distinct labelsets, the one of class c is at words c * m_Words ..
+	 * (c + 1) * m_Words - 1.
+	 */
+	protected long[] m_Labelsets;
+
+	/**
+	 * Hash table with the class of every slot plus one, 0 if the slot is
+	 * empty. Its size is a power of two.
+	 */
+	protected int[] m_Table;
+
+	/**
+	 * Number of classes.
+	 */
+	protected int m_NumClasses;
+
+	/**
+	 * Class of every instance.
+	 */
+	protected int[] m_Classes;
+
+	/**
+	 * Encodes the labelsets of the instances of a feature space.
+	 *
+	 * @param space Feature space.
+	 */
+	public LabelsetEncoder(FeatureSpace space) {
+		int capacity = 16;
+
+		m_Words = (space.numLabels() + 63) >>> 6;
+
+		// At most half full, no rehashing is needed
+		while (capacity < 2 * space.numInstances())
+			capacity <<= 1;
+
+		m_Table = new int[capacity];
+		m_Labelsets = new long[Math.max(1, space.numInstances()) * m_Words];
+		m_Classes = new int[space.numInstances()];
+
+		for (int i = 0; i < m_Classes.length; i++)
+			m_Classes[i] = encode(space.labels(i));
+	}
+
+	/**
+	 * Returns the class of a labelset, adding it if it is new.
+	 *
+	 * @param labels Packed labelset.
+	 * @return Index of the class.
+	 */
+	protected int encode(long[] labels) {
+		int mask = m_Table.length - 1, slot = hash(labels) & mask, c;
+
+		while (m_Table[slot] != 0) {
+			c = m_Table[slot] - 1;
+
+			if (equals(c, labels))
+				return c;
+
+			slot = (slot + 1) & mask;
+		}
+
+		System.arraycopy(labels, 0, m_Labelsets, m_NumClasses * m_Words, m_Words);
+		m_Table[slot] = ++m_NumClasses;
+
+		return m_NumClasses - 1;
+	}
+
+	/**
+	 * Returns whether or not a class has the given labelset.
+	 *
+	 * @param c Index of the class.
+	 * @param labels Packed labelset.
+	 * @return True if the labelset of the class is equal to labels.
+	 */
+	protected boolean equals(int c, long[] labels) {
+		int start = c * m_Words;
+
+		for (int w = 0; w < m_Words; w++)
+			if (m_Labelsets[start + w] != labels[w])
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Hashes a packed labelset, the bits are mixed so that the low ones (the
+	 * slot) depend on every label.
+	 *
+	 * @param labels Packed labelset.
+	 * @return Hash code.
+	 */
+	protected static int hash(long[] labels) {
+		long h = 0;
+
+		for (int w = 0; w < labels.length; w++) {
+			h = (h ^ labels[w]) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 32;
+		}
+
+		return (int) (h ^ (h >>> 29));
+	}
+
+	/**
+	 * Returns the number of classes (distinct labelsets).
+	 *
+	 * @return Number of classes.
+	 */
+	public int numClasses() {
+
+		return m_NumClasses;
+	}
+
+	/**
+	 * Returns the class of every instance.
+	 *
+	 * @return Class indexes.
+	 */
+	public int[] classes() {
+
+		return m_Classes;
+	}
+
+	/**
+	 * Returns the labelset of a class.
+	 *
+	 * @param c Index of the class.
+	 * @return Packed labelset.
+	 */
+	public long[] labelset(int c) {
+
+		return Arrays.copyOfRange(m_Labelsets, c * m_Words, (c + 1) * m_Words);
+	}
+}
@@ -0,0 +1,541 @@
+/*
+ * LocalSets.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.Arrays;
+
+/**
+ * Local sets of the instances of a view, as used by the LSS family: the
+ * local set of an instance contains the instances that are nearer to it than
+ * its nearest enemy (the nearest instance of another class).<br>
+ * The local sets are stored as sorted lists in compressed sparse row (CSR)
+ * form: the members of the local set of instance i are
+ * members()[offset(i)] .. members()[offset(i + 1) - 1].
+ * <p>
+ *
+ * @version 20261018
+ */
+public class LocalSets {
+
+	/**
+	 * Start of the local set of every instance, plus the end of the last.
+	 */
+	protected int[] m_Offsets;
+
+	/**
+	 * Concatenated local sets.
+	 */
+	protected int[] m_Members;
+
+	/**
+	 * Nearest enemy of every instance, -1 if it has none.
+	 */
+	protected int[] m_Enemies;
+
+	/**
+	 * Computes the local sets of a view by linear scans.
+	 *
+	 * @param view View of the data set.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @throws Exception If something goes wrong.
+	 */
+	public LocalSets(SingleLabelView view, int threads) throws Exception {
+		this(view, null, threads);
+	}
+
+	/**
+	 * Computes the local sets of a view. The instances are processed in
+	 * parallel, every chunk with one row of distances and its own buffer of
+	 * members, the buffers are joined in the order of the instances.<br>
+	 * With a tree the neighbours of every instance are streamed by distance
+	 * until its nearest enemy appears, so the cost depends on the size of the
+	 * local sets instead of the number of instances. Otherwise every instance
+	 * is compared with all the others.
+	 *
+	 * @param view View of the data set.
+	 * @param tree Tree over the space of the view (can be null).
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @throws Exception If something goes wrong.
+	 */
+	public LocalSets(final SingleLabelView view, final KDTree tree, int threads) throws Exception {
+		final int numInstances = view.numInstances();
+		final int[] sizes = new int[numInstances];
+		final int[][] buffers = new int[numInstances][];
+
+		m_Enemies = new int[numInstances];
+
+		Parallel.forRange(0, numInstances, threads, new Parallel.Range() {
+			@Override
+			public void run(int from, int to) {
+				double[] distances = new double[numInstances];
+				Buffer members = new Buffer(to - from);
+				KDTree.Stream stream = tree == null ? null : new KDTree.Stream(tree);
+
+				for (int i = from; i < to; i++) {
+					sizes[i] = members.m_Size;
+					m_Enemies[i] = search(view, i, null, stream, distances, members);
+					sizes[i] = members.m_Size - sizes[i];
+				}
+
+				// The buffer of the chunk is kept in its first instance
+				buffers[from] = members.m_Ids;
+			}
+		});
+
+		pack(sizes, buffers);
+	}
+
+	/**
+	 * Finds the nearest enemy and the local set of an instance, ignoring the
+	 * removed instances.
+	 *
+	 * @param view View of the data set.
+	 * @param i Index of the instance.
+	 * @param removed Instances to ignore (can be null).
+	 * @param stream Stream of neighbours, null for a linear scan.
+	 * @param distances Row where the distances are stored.
+	 * @param members Buffer where the local set is appended, sorted.
+	 * @return Index of the nearest enemy, -1 if there are no enemies.
+	 */
+	protected static int search(SingleLabelView view, int i, boolean[] removed,
+	                            KDTree.Stream stream, double[] distances, Buffer members) {
+		int start = members.m_Size, enemy = -1;
+
+		if (stream == null) {
+			enemy = nearestEnemy(view, i, removed, distances);
+
+			// Compute the localset of i.
+			for (int j = 0; j < view.numInstances(); j++)
+				if (i != j && (removed == null || !removed[j]) &&
+				    (enemy == -1 || distances[j] < distances[enemy]))
+					members.add(j);
+
+			return enemy;
+		}
+
+		stream.start(view, i);
+
+		while (stream.next()) {
+			if (removed != null && removed[stream.id()])
+				continue;
+
+			if (view.classValue(stream.id()) != view.classValue(i)) {
+				enemy = stream.id();
+				break;
+			}
+
+			distances[stream.id()] = stream.distance();
+			members.add(stream.id());
+		}
+
+		// The ones tied with the enemy aren't nearer than it
+		while (members.m_Size > start && enemy != -1 &&
+		       distances[members.m_Ids[members.m_Size - 1]] >= stream.distance())
+			members.m_Size--;
+
+		Arrays.sort(members.m_Ids, start, members.m_Size);
+
+		return enemy;
+	}
+
+	/**
+	 * Computes the distances from an instance to the others and returns its
+	 * nearest enemy, the first one in case of tie.
+	 *
+	 * @param view View of the data set.
+	 * @param i Index of the instance.
+	 * @param removed Instances to ignore (can be null).
+	 * @param distances Where the distances are stored.
+	 * @return Index of the nearest enemy, -1 if there are no enemies.
+	 */
+	protected static int nearestEnemy(SingleLabelView view, int i, boolean[] removed,
+	                                  double[] distances) {
+		double distNearEnemy = Double.MAX_VALUE;
+		int enemy = -1;
+
+		// Compute the distance between i and the others.
+		for (int j = 0; j < view.numInstances(); j++) {
+			if (i != j && (removed == null || !removed[j])) {
+				distances[j] = view.distance(i, j);
+
+				if (view.classValue(i) != view.classValue(j) && distances[j] < distNearEnemy) {
+					distNearEnemy = distances[j];
+					enemy = j;
+				}
+			}
+		}
+
+		return enemy;
+	}
+
+	/**
+	 * Returns the local sets once some instances are removed: the removed
+	 * instances have empty local sets and no enemy. If the nearest enemy of
+	 * an instance remains it is still the nearest one, and its local set only
+	 * loses the removed instances. Only the instances whose enemy has been
+	 * removed are searched again.
+	 *
+	 * @param view View of the data set.
+	 * @param removed Removed instances.
+	 * @param tree Tree over the space of the view (can be null).
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @return Local sets of the remaining instances.
+	 * @throws Exception If something goes wrong.
+	 */
+	public LocalSets restrict(final SingleLabelView view, final boolean[] removed,
+	                          final KDTree tree, int threads) throws Exception {
+		final int numInstances = numInstances();
+		final LocalSets result = new LocalSets(new int[numInstances]);
+		final int[] sizes = new int[numInstances];
+		final int[][] buffers = new int[numInstances][];
+
+		Parallel.forRange(0, numInstances, threads, new Parallel.Range() {
+			@Override
+			public void run(int from, int to) {
+				double[] distances = new double[numInstances];
+				Buffer members = new Buffer(to - from);
+				KDTree.Stream stream = tree == null ? null : new KDTree.Stream(tree);
+
+				for (int i = from; i < to; i++) {
+					sizes[i] = members.m_Size;
+
+					if (removed[i]) {
+						result.m_Enemies[i] = -1;
+					}
+					else if (m_Enemies[i] == -1 || !removed[m_Enemies[i]]) {
+						result.m_Enemies[i] = m_Enemies[i];
+
+						for (int p = m_Offsets[i]; p < m_Offsets[i + 1]; p++)
+							if (!removed[m_Members[p]])
+								members.add(m_Members[p]);
+					}
+					else {
+						result.m_Enemies[i] = search(view, i, removed, stream, distances, members);
+					}
+
+					sizes[i] = members.m_Size - sizes[i];
+				}
+
+				// The buffer of the chunk is kept in its first instance
+				buffers[from] = members.m_Ids;
+			}
+		});
+
+		result.pack(sizes, buffers);
+
+		return result;
+	}
+
+	/**
+	 * Creates the local sets from their enemies, the sets are packed later.
+	 *
+	 * @param enemies Nearest enemy of every instance.
+	 */
+	protected LocalSets(int[] enemies) {
+		m_Enemies = enemies;
+	}
+
+	/**
+	 * Computes the local sets of several labels in a single pass over the
+	 * instances, the views must have the same distances (independent binary
+	 * relevance). The neighbours of every instance are sorted once, by
+	 * distance and index, and every label only walks them until its nearest
+	 * enemy. With a tree, the neighbours are streamed until every label has
+	 * found its enemy, otherwise the distances to all the instances are
+	 * computed and sorted.
+	 *
+	 * @param views View of every label, null for the labels to skip.
+	 * @param tree Tree over the space of the views (can be null).
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @return Local sets of every label, null for the skipped ones.
+	 * @throws Exception If something goes wrong.
+	 */
+	public static LocalSets[] forLabels(final SingleLabelView[] views, final KDTree tree,
+	                                    int threads) throws Exception {
+		final int numLabels = views.length;
+		final LocalSets[] result = new LocalSets[numLabels];
+		final int[][] sizes = new int[numLabels][], classes = new int[numLabels][];
+		final int[][][] buffers = new int[numLabels][][];
+		final boolean[] constant = new boolean[numLabels];
+		SingleLabelView first = null;
+
+		for (int l = 0; l < numLabels; l++) {
+			if (views[l] == null)
+				continue;
+
+			if (first == null)
+				first = views[l];
+
+			classes[l] = views[l].classes();
+			constant[l] = true;
+
+			for (int i = 1; constant[l] && i < classes[l].length; i++)
+				constant[l] = classes[l][i] == classes[l][0];
+
+			result[l] = new LocalSets(new int[classes[l].length]);
+			sizes[l] = new int[classes[l].length];
+			buffers[l] = new int[classes[l].length][];
+		}
+
+		if (first == null)
+			return result;
+
+		final SingleLabelView view = first;
+		final int numInstances = view.numInstances();
+
+		Parallel.forRange(0, numInstances, threads, new Parallel.Range() {
+			@Override
+			public void run(int from, int to) {
+				double[] distances = new double[numInstances];
+				int[] order = new int[numInstances];
+				Buffer[] members = new Buffer[numLabels];
+				boolean[] found = new boolean[numLabels];
+				KDTree.Stream stream = tree == null ? null : new KDTree.Stream(tree);
+				int numOrder, pending, start, t;
+
+				for (int l = 0; l < numLabels; l++)
+					if (views[l] != null)
+						members[l] = new Buffer(to - from);
+
+				for (int i = from; i < to; i++) {
+					numOrder = 0;
+
+					if (stream == null) {
+						for (int j = 0; j < numInstances; j++) {
+							if (j != i) {
+								distances[j] = view.distance(i, j);
+								order[numOrder++] = j;
+							}
+						}
+
+						ProximityGraph.sort(order, distances, 0, numOrder);
+					}
+					else {
+						pending = 0;
+
+						for (int l = 0; l < numLabels; l++) {
+							found[l] = views[l] == null || constant[l];
+
+							if (!found[l])
+								pending++;
+						}
+
+						stream.start(view, i);
+
+						while (pending > 0 && stream.next()) {
+							distances[stream.id()] = stream.distance();
+							order[numOrder++] = stream.id();
+
+							for (int l = 0; l < numLabels; l++) {
+								if (!found[l] && classes[l][stream.id()] != classes[l][i]) {
+									found[l] = true;
+									pending--;
+								}
+							}
+						}
+					}
+
+					for (int l = 0; l < numLabels; l++) {
+						if (views[l] == null)
+							continue;
+
+						start = members[l].m_Size;
+
+						if (constant[l]) {
+							// Without enemies the local set is every other instance
+							result[l].m_Enemies[i] = -1;
+
+							for (int j = 0; j < numInstances; j++)
+								if (j != i)
+									members[l].add(j);
+						}
+						else {
+							for (t = 0; classes[l][order[t]] == classes[l][i]; t++)
+								members[l].add(order[t]);
+
+							result[l].m_Enemies[i] = order[t];
+
+							// The ones tied with the enemy aren't nearer than it
+							while (members[l].m_Size > start && distances[members[l].m_Ids[
+							       members[l].m_Size - 1]] >= distances[order[t]])
+								members[l].m_Size--;
+
+							Arrays.sort(members[l].m_Ids, start, members[l].m_Size);
+						}
+
+						sizes[l][i] = members[l].m_Size - start;
+					}
+				}
+
+				// The buffers of the chunk are kept in its first instance
+				for (int l = 0; l < numLabels; l++)
+					if (views[l] != null)
+						buffers[l][from] = members[l].m_Ids;
+			}
+		});
+
+		for (int l = 0; l < numLabels; l++)
+			if (views[l] != null)
+				result[l].pack(sizes[l], buffers[l]);
+
+		return result;
+	}
+
+	/**
+	 * Joins the local sets computed by chunks of instances in CSR form.
+	 *
+	 * @param sizes Size of the local set of every instance.
+	 * @param buffers Buffer of every chunk, kept in its first instance (the
+	 *        other instances are null).
+	 */
+	protected void pack(int[] sizes, int[][] buffers) {
+		int numInstances = sizes.length, pos = 0;
+		int[] buffer = null;
+
+		m_Offsets = new int[numInstances + 1];
+
+		for (int i = 0; i < numInstances; i++)
+			m_Offsets[i + 1] = m_Offsets[i] + sizes[i];
+
+		m_Members = new int[m_Offsets[numInstances]];
+
+		for (int i = 0; i < numInstances; i++) {
+			if (buffers[i] != null) {
+				buffer = buffers[i];
+				pos = 0;
+			}
+
+			System.arraycopy(buffer, pos, m_Members, m_Offsets[i], sizes[i]);
+			pos += sizes[i];
+		}
+	}
+
+	/**
+	 * Returns the number of instances.
+	 *
+	 * @return Number of instances.
+	 */
+	public int numInstances() {
+
+		return m_Enemies.length;
+	}
+
+	/**
+	 * Returns the nearest enemy of an instance.
+	 *
+	 * @param i Index of the instance.
+	 * @return Index of the nearest enemy, -1 if it has none.
+	 */
+	public int enemy(int i) {
+
+		return m_Enemies[i];
+	}
+
+	/**
+	 * Returns the nearest enemy of every instance.
+	 *
+	 * @return Nearest enemies, -1 for the instances without enemies.
+	 */
+	public int[] enemies() {
+
+		return m_Enemies;
+	}
+
+	/**
+	 * Returns the start of the local set of an instance in members(),
+	 * offset(i + 1) is its end (exclusive).
+	 *
+	 * @param i Index of the instance.
+	 * @return Start of the local set.
+	 */
+	public int offset(int i) {
+
+		return m_Offsets[i];
+	}
+
+	/**
+	 * Returns the size of the local set of an instance.
+	 *
+	 * @param i Index of the instance.
+	 * @return Number of instances in the local set.
+	 */
+	public int size(int i) {
+
+		return m_Offsets[i + 1] - m_Offsets[i];
+	}
+
+	/**
+	 * Returns the concatenated local sets.
+	 *
+	 * @return Members of the local sets.
+	 */
+	public int[] members() {
+
+		return m_Members;
+	}
+
+	/**
+	 * Returns whether or not an instance is in the local set of another.
+	 *
+	 * @param i Index of the owner of the local set.
+	 * @param j Index of the instance to look for.
+	 * @return True if j is in the local set of i.
+	 */
+	public boolean contains(int i, int j) {
+
+		return Arrays.binarySearch(m_Members, m_Offsets[i], m_Offsets[i + 1], j) >= 0;
+	}
+
+	/**
+	 * Growable list of members, every chunk of instances appends its local
+	 * sets to its own list.
+	 */
+	protected static class Buffer {
+
+		/**
+		 * Members, only the first m_Size are valid.
+		 */
+		protected int[] m_Ids;
+
+		/**
+		 * Number of members.
+		 */
+		protected int m_Size;
+
+		/**
+		 * Creates an empty list.
+		 *
+		 * @param capacity Initial capacity.
+		 */
+		protected Buffer(int capacity) {
+			m_Ids = new int[Math.max(16, capacity)];
+		}
+
+		/**
+		 * Appends a member, growing the list if it is full.
+		 *
+		 * @param id Index of the member.
+		 */
+		protected void add(int id) {
+			if (m_Size == m_Ids.length)
+				m_Ids = Arrays.copyOf(m_Ids, m_Size * 2);
+
+			m_Ids[m_Size++] = id;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * NeighbourGraph.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.Arrays;
+
+/**
+ * k nearest neighbours graph of the instances of a view: the neighbours of
+ * every instance sorted by distance, the ones tied with the k-th included.
+ * It is computed by a parallel pass over the instances.<br>
+ * Without the labels as features the distances don't depend on the label,
+ * so the graph of one label is valid for all of them.<br>
+ * When instances are removed the graph is repaired: only the instances that
+ * had a removed neighbour are updated.
+ * <p>
+ *
+ * @version 20261018
+ */
+public class NeighbourGraph {
+
+	/**
+	 * Feature space of the instances.
+	 */
+	protected FeatureSpace m_Space;
+
+	/**
+	 * Number of neighbours.
+	 */
+	protected int m_K;
+
+	/**
+	 * Neighbours of every instance.
+	 */
+	protected int[][] m_Neighbours;
+
+	/**
+	 * Distances to the neighbours of every instance.
+	 */
+	protected double[][] m_Distances;
+
+	/**
+	 * Computes the graph of a view.
+	 *
+	 * @param view View of the data set.
+	 * @param k Number of neighbours.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @throws Exception If something goes wrong.
+	 */
+	public NeighbourGraph(final SingleLabelView view, final int k, int threads) throws Exception {
+		m_Space = view.space();
+		m_K = k;
+		m_Neighbours = new int[view.numInstances()][];
+		m_Distances = new double[view.numInstances()][];
+
+		Parallel.forRange(0, view.numInstances(), threads, new Parallel.Range() {
+			@Override
+			public void run(int from, int to) {
+				Neighbours nn = new Neighbours(k);
+
+				for (int i = from; i < to; i++) {
+					view.kNearestNeighbours(i, k, null, nn);
+					m_Neighbours[i] = Arrays.copyOf(nn.ids(), nn.size());
+					m_Distances[i] = Arrays.copyOf(nn.distances(), nn.size());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Copies a graph, so that it can be repaired without changing the original.
+	 * The lists are shared, repair replaces them instead of modifying them.
+	 *
+	 * @param graph Graph to copy.
+	 */
+	public NeighbourGraph(NeighbourGraph graph) {
+		m_Space = graph.m_Space;
+		m_K = graph.m_K;
+		m_Neighbours = graph.m_Neighbours.clone();
+		m_Distances = graph.m_Distances.clone();
+	}
+
+	/**
+	 * Repairs the graph after removing instances. The removed neighbours are
+	 * dropped from the lists. A list that still has k neighbours is only
+	 * trimmed to the ties with the new k-th, as every closer instance was
+	 * already in it, otherwise it is searched again. The lists of the removed
+	 * instances aren't updated.
+	 *
+	 * @param view View of the data set.
+	 * @param removed Removed instances, the previous ones included.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @return Instances whose neighbours have changed.
+	 * @throws Exception If something goes wrong.
+	 */
+	public boolean[] repair(final SingleLabelView view, final boolean[] removed, int threads)
+	                     throws Exception {
+		final boolean[] changed = new boolean[m_Neighbours.length];
+
+		Parallel.forRange(0, m_Neighbours.length, threads, new Parallel.Range() {
+			@Override
+			public void run(int from, int to) {
+				Neighbours nn = new Neighbours(m_K);
+				int[] ids;
+				double[] dists;
+				int num;
+
+				for (int i = from; i < to; i++) {
+					if (removed[i])
+						continue;
+
+					ids = m_Neighbours[i];
+					dists = m_Distances[i];
+					num = 0;
+
+					for (int j = 0; j < ids.length; j++)
+						if (!removed[ids[j]])
+							num++;
+
+					if (num == ids.length)
+						continue;
+
+					changed[i] = true;
+
+					if (num < m_K) {
+						view.kNearestNeighbours(i, m_K, removed, nn);
+						m_Neighbours[i] = Arrays.copyOf(nn.ids(), nn.size());
+						m_Distances[i] = Arrays.copyOf(nn.distances(), nn.size());
+						continue;
+					}
+
+					nn.clear(m_K);
+
+					for (int j = 0; j < ids.length; j++)
+						if (!removed[ids[j]])
+							nn.offer(ids[j], dists[j]);
+
+					m_Neighbours[i] = Arrays.copyOf(nn.ids(), nn.size());
+					m_Distances[i] = Arrays.copyOf(nn.distances(), nn.size());
+				}
+			}
+		});
+
+		return changed;
+	}
+
+	/**
+	 * Returns the feature space of the instances.
+	 *
+	 * @return Feature space.
+	 */
+	public FeatureSpace space() {
+
+		return m_Space;
+	}
+
+	/**
+	 * Returns the number of neighbours.
+	 *
+	 * @return Number of neighbours.
+	 */
+	public int k() {
+
+		return m_K;
+	}
+
+	/**
+	 * Returns the neighbours of an instance sorted by distance.
+	 *
+	 * @param i Index of the instance.
+	 * @return Indexes of the neighbours.
+	 */
+	public int[] neighbours(int i) {
+
+		return m_Neighbours[i];
+	}
+
+	/**
+	 * Returns the number of neighbours of an instance for a smaller k: the
+	 * first k and the ones tied with the k-th.
+	 *
+	 * @param i Index of the instance.
+	 * @param k Number of neighbours, not greater than k().
+	 * @return Number of neighbours.
+	 */
+	public int numNeighbours(int i, int k) {
+		double[] dists = m_Distances[i];
+		int num = Math.min(k, dists.length);
+
+		if (num == 0)
+			return 0;
+
+		while (num < dists.length && dists[num] <= dists[k - 1])
+			num++;
+
+		return num;
+	}
+
+	/**
+	 * Returns the distances to the neighbours of an instance.
+	 *
+	 * @param i Index of the instance.
+	 * @return Sorted distances.
+	 */
+	public double[] distances(int i) {
+
+		return m_Distances[i];
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Neighbours.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.Arrays;
+
+/**
+ * Reusable list of the nearest neighbours of an instance, sorted by distance.
+ * The instances tied with the k-th one are kept, as weka's LinearNNSearch
+ * does. It isn't thread safe, every thread uses its own list.
+ * <p>
+ *
+ * @version 20261018
+ */
+public class Neighbours {
+
+	/**
+	 * Indexes of the neighbours.
+	 */
+	protected int[] m_Ids;
+
+	/**
+	 * Distances to the neighbours.
+	 */
+	protected double[] m_Dists;
+
+	/**
+	 * Number of neighbours in the list.
+	 */
+	protected int m_Size;
+
+	/**
+	 * Number of neighbours to keep (plus ties).
+	 */
+	protected int m_K;
+
+	/**
+	 * Creates an empty list.
+	 *
+	 * @param k Number of neighbours to keep (plus ties).
+	 */
+	public Neighbours(int k) {
+		m_Ids = new int[k + 1];
+		m_Dists = new double[k + 1];
+		clear(k);
+	}
+
+	/**
+	 * Empties the list.
+	 *
+	 * @param k Number of neighbours to keep (plus ties).
+	 */
+	public void clear(int k) {
+		m_K = k;
+		m_Size = 0;
+	}
+
+	/**
+	 * Returns the number of neighbours, the ones tied with the k-th included.
+	 *
+	 * @return Number of neighbours.
+	 */
+	public int size() {
+
+		return m_Size;
+	}
+
+	/**
+	 * Returns the indexes of the neighbours, only the first size() are valid.
+	 *
+	 * @return Indexes of the neighbours.
+	 */
+	public int[] ids() {
+
+		return m_Ids;
+	}
+
+	/**
+	 * Returns the distances to the neighbours, only the first size() are valid.
+	 *
+	 * @return Distances to the neighbours.
+	 */
+	public double[] distances() {
+
+		return m_Dists;
+	}
+
+	/**
+	 * Returns the distance to the k-th neighbour, the maximum value if there
+	 * are less than k neighbours.
+	 *
+	 * @return Distance to the k-th neighbour.
+	 */
+	public double kthDistance() {
+
+		return m_Size < m_K ? Double.MAX_VALUE : m_Dists[m_K - 1];
+	}
+
+	/**
+	 * Offers a candidate neighbour. It is inserted after the neighbours at the
+	 * same distance and the neighbours no longer tied with the k-th are dropped.
+	 *
+	 * @param id Index of the candidate.
+	 * @param dist Distance to the candidate.
+	 */
+	public void offer(int id, double dist) {
+		int pos;
+
+		if (m_K < 1 || dist > kthDistance())
+			return;
+
+		if (m_Size == m_Ids.length) {
+			m_Ids = Arrays.copyOf(m_Ids, m_Size * 2);
+			m_Dists = Arrays.copyOf(m_Dists, m_Size * 2);
+		}
+
+		for (pos = m_Size; pos > 0 && m_Dists[pos - 1] > dist; pos--) {
+			m_Ids[pos] = m_Ids[pos - 1];
+			m_Dists[pos] = m_Dists[pos - 1];
+		}
+
+		m_Ids[pos] = id;
+		m_Dists[pos] = dist;
+		m_Size++;
+
+		while (m_Size > m_K && m_Dists[m_Size - 1] > m_Dists[m_K - 1])
+			m_Size--;
+	}
+}
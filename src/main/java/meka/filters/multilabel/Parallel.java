@@ -0,0 +1,181 @@
+/*
+ * Parallel.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join helper for the loops of the IS methods. A range of indexes is
+ * split in chunks, every chunk is processed by one thread at a time, so a
+ * body can allocate its scratch buffers once per chunk.
+ * <p>
+ * The number of threads of a filter is taken from its options, if it isn't
+ * positive the global setting is used: the system property
+ * "meka.filters.multilabel.threads", or the number of processors.
+ *
+ * @version 20261018
+ */
+public class Parallel {
+
+	/**
+	 * System property with the default number of threads.
+	 */
+	public static final String THREADS_PROPERTY = "meka.filters.multilabel.threads";
+
+	/**
+	 * Number of chunks per thread, for load balancing.
+	 */
+	protected static final int CHUNKS_PER_THREAD = 8;
+
+	/**
+	 * Body of a parallel loop.
+	 */
+	public static abstract class Range {
+
+		/**
+		 * Processes a chunk of the range.
+		 *
+		 * @param from First index of the chunk.
+		 * @param to Last index of the chunk (exclusive).
+		 * @throws Exception If something goes wrong.
+		 */
+		public abstract void run(int from, int to) throws Exception;
+	}
+
+	/**
+	 * Returns the global number of threads.
+	 *
+	 * @return The value of the system property if it is positive, otherwise
+	 *         the number of processors.
+	 */
+	public static int defaultThreads() {
+		String value = System.getProperty(THREADS_PROPERTY, "");
+
+		try {
+			if (Integer.parseInt(value.trim()) > 0)
+				return Integer.parseInt(value.trim());
+		}
+		catch (NumberFormatException e) {
+			// Not set
+		}
+
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Returns the number of threads to use.
+	 *
+	 * @param threads Threads of the filter, the global setting if not positive.
+	 * @return Number of threads.
+	 */
+	public static int threads(int threads) {
+
+		return threads > 0 ? threads : defaultThreads();
+	}
+
+	/**
+	 * Runs a loop over a range of indexes. With one thread, or a range too
+	 * small to split, the body is run in the calling thread.
+	 *
+	 * @param from First index.
+	 * @param to Last index (exclusive).
+	 * @param threads Threads of the filter, the global setting if not positive.
+	 * @param body Body of the loop.
+	 * @throws Exception The first exception thrown by the body.
+	 */
+	public static void forRange(int from, int to, int threads, Range body) throws Exception {
+		ForkJoinPool pool;
+
+		threads = threads(threads);
+
+		if (threads == 1 || to - from < 2) {
+			if (from < to)
+				body.run(from, to);
+
+			return;
+		}
+
+		pool = new ForkJoinPool(threads);
+
+		try {
+			pool.invoke(new Chunk(body, from, to,
+			                      Math.max(1, (to - from) / (threads * CHUNKS_PER_THREAD))));
+		}
+		catch (ChunkException e) {
+			throw (Exception) e.getCause();
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Wrapper of the checked exceptions of a body.
+	 */
+	private static class ChunkException extends RuntimeException {
+
+		private static final long serialVersionUID = 4416093162870468416L;
+
+		ChunkException(Exception cause) {
+			super(cause);
+		}
+	}
+
+	/**
+	 * Task that splits a range until the chunks are small enough.
+	 */
+	private static class Chunk extends RecursiveAction {
+
+		private static final long serialVersionUID = -6018364389587617223L;
+
+		private final Range m_Body;
+
+		private final int m_From, m_To, m_Grain;
+
+		Chunk(Range body, int from, int to, int grain) {
+			m_Body = body;
+			m_From = from;
+			m_To = to;
+			m_Grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			int mid;
+
+			if (m_To - m_From <= m_Grain) {
+				try {
+					m_Body.run(m_From, m_To);
+				}
+				catch (RuntimeException e) {
+					throw e;
+				}
+				catch (Exception e) {
+					throw new ChunkException(e);
+				}
+
+				return;
+			}
+
+			mid = (m_From + m_To) >>> 1;
+			invokeAll(new Chunk(m_Body, m_From, mid, m_Grain),
+			          new Chunk(m_Body, mid, m_To, m_Grain));
+		}
+	}
+}
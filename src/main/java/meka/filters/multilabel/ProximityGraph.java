@@ -0,0 +1,400 @@
+/*
+ * ProximityGraph.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.Arrays;
+
+/**
+ * Undirected proximity graph of the instances of a view, stored as
+ * adjacency lists in compressed sparse row (CSR) form: the neighbours of
+ * instance i are targets()[offset(i)] .. targets()[offset(i + 1) - 1],
+ * sorted and without repetitions. The memory is O(n + edges).
+ * <p>
+ * The exact graph still takes O(n<sup>2</sup>) time, as every pair of
+ * instances is a candidate edge: the nearest neighbours and the k-d tree
+ * only make the check of a pair cheaper, they don't prune the pairs.
+ * <p>
+ *
+ * @version 20261018
+ */
+public class ProximityGraph {
+
+	/**
+	 * Number of nearest neighbours of every instance that are checked first
+	 * in the lunes of the exact graph.
+	 */
+	protected static final int WITNESSES = 16;
+
+	/**
+	 * Start of the adjacency list of every instance, plus the end of the last.
+	 */
+	protected int[] m_Offsets;
+
+	/**
+	 * Concatenated adjacency lists.
+	 */
+	protected int[] m_Targets;
+
+	/**
+	 * Builds the graph from a list of undirected edges, repeated edges and
+	 * loops are discarded.
+	 *
+	 * @param numInstances Number of instances (vertices).
+	 * @param from First end of every edge.
+	 * @param to Second end of every edge.
+	 * @param numEdges Number of edges in the arrays.
+	 */
+	public ProximityGraph(int numInstances, int[] from, int[] to, int numEdges) {
+		int[] offsets = new int[numInstances + 1], pos;
+		int[] targets = new int[2 * numEdges];
+		int num = 0, start;
+
+		for (int e = 0; e < numEdges; e++) {
+			if (from[e] != to[e]) {
+				offsets[from[e] + 1]++;
+				offsets[to[e] + 1]++;
+			}
+		}
+
+		for (int i = 0; i < numInstances; i++)
+			offsets[i + 1] += offsets[i];
+
+		pos = Arrays.copyOf(offsets, numInstances);
+
+		for (int e = 0; e < numEdges; e++) {
+			if (from[e] != to[e]) {
+				targets[pos[from[e]]++] = to[e];
+				targets[pos[to[e]]++] = from[e];
+			}
+		}
+
+		// Sort every list and compact the repeated neighbours
+		m_Offsets = new int[numInstances + 1];
+
+		for (int i = 0; i < numInstances; i++) {
+			start = num;
+			Arrays.sort(targets, offsets[i], offsets[i + 1]);
+
+			for (int t = offsets[i]; t < offsets[i + 1]; t++)
+				if (num == start || targets[num - 1] != targets[t])
+					targets[num++] = targets[t];
+
+			m_Offsets[i + 1] = num;
+		}
+
+		m_Targets = Arrays.copyOf(targets, num);
+	}
+
+	/**
+	 * Builds the approximate relative neighbourhood graph used by RNGE: every
+	 * instance is joined to its nearest successor (the nearest instance with
+	 * a greater index, the first one in case of tie).<br>
+	 * The successors are searched in parallel and the edges are added in the
+	 * order of the instances, so they don't depend on the number of threads.
+	 *
+	 * @param view View of the data set.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @return Proximity graph.
+	 * @throws Exception If something goes wrong.
+	 */
+	public static ProximityGraph approximate(final SingleLabelView view, int threads)
+	                                            throws Exception {
+		final int numInstances = view.numInstances();
+		final int[] successor = new int[numInstances];
+		int[] from = new int[numInstances], to = new int[numInstances];
+		int numEdges = 0;
+
+		Parallel.forRange(0, numInstances, threads, new Parallel.Range() {
+			@Override
+			public void run(int first, int last) {
+				double min, dist;
+				int rel;
+
+				for (int i = first; i < last; i++) {
+					min = Double.MAX_VALUE;
+					rel = -1;
+
+					for (int j = i + 1; j < numInstances; j++) {
+						dist = view.distance(i, j);
+
+						if (dist < min) {
+							min = dist;
+							rel = j;
+						}
+					}
+
+					successor[i] = rel;
+				}
+			}
+		});
+
+		for (int i = 0; i < numInstances; i++) {
+			if (successor[i] != -1) {
+				from[numEdges] = i;
+				to[numEdges++] = successor[i];
+			}
+		}
+
+		return new ProximityGraph(numInstances, from, to, numEdges);
+	}
+
+	/**
+	 * Builds the exact relative neighbourhood graph: p and q are joined if 
+	 * no instance r lies in their lune, max(d(p, r), d(q, r)) &lt; d(p, q).
+	 * <p>
+	 * The k nearest neighbours of every instance are the witnesses: a pair
+	 * is discarded if a neighbour of p or q nearer to it than d(p, q) lies in
+	 * the lune. If d(p, q) isn't greater than the distance to the last
+	 * neighbour of p (or q), every instance nearer to it is a witness and the
+	 * pair is settled. Only the other candidates are checked by a search of
+	 * their lune, in a k-d tree if there are features, hence the graph is
+	 * exact without sorting the instances by distance, but all the pairs are
+	 * still enumerated: the time is quadratic in the number of instances.
+	 * The instances are processed in parallel and every edge is checked from
+	 * its lower end, so the edges don't depend on the number of threads.
+	 *
+	 * @param view View of the data set.
+	 * @param threads Number of threads, the global setting if not positive.
+	 * @return Proximity graph.
+	 * @throws Exception If something goes wrong.
+	 */
+	public static ProximityGraph exact(final SingleLabelView view, int threads) throws Exception {
+		final int numInstances = view.numInstances();
+		final int[][] successors = new int[numInstances][];
+		final NeighbourGraph witnesses = new NeighbourGraph(view, WITNESSES, threads);
+		final KDTree tree = KDTree.build(view.space());
+		int[] from, to;
+		int numEdges = 0;
+
+		Parallel.forRange(0, numInstances, threads, new Parallel.Range() {
+			@Override
+			public void run(int first, int last) {
+				int[] found = new int[16];
+				int numFound;
+				double dist;
+
+				for (int p = first; p < last; p++) {
+					numFound = 0;
+
+					for (int q = p + 1; q < numInstances; q++) {
+						dist = view.distance(p, q);
+
+						if (blocked(view, witnesses, p, q, dist) ||
+						    blocked(view, witnesses, q, p, dist))
+							continue;
+
+						if (!settled(witnesses, p, dist) && !settled(witnesses, q, dist) &&
+						    lune(view, tree, p, q, dist) != -1)
+							continue;
+
+						if (numFound == found.length)
+							found = Arrays.copyOf(found, numFound * 2);
+
+						found[numFound++] = q;
+					}
+
+					successors[p] = Arrays.copyOf(found, numFound);
+				}
+			}
+		});
+
+		for (int[] s : successors)
+			numEdges += s.length;
+
+		from = new int[numEdges];
+		to = new int[numEdges];
+		numEdges = 0;
+
+		for (int p = 0; p < numInstances; p++) {
+			for (int q : successors[p]) {
+				from[numEdges] = p;
+				to[numEdges++] = q;
+			}
+		}
+
+		return new ProximityGraph(numInstances, from, to, numEdges);
+	}
+
+	/**
+	 * Returns whether a nearest neighbour of p lies in the lune of p and q.
+	 *
+	 * @param view View of the data set.
+	 * @param witnesses Nearest neighbours of every instance.
+	 * @param p Index of the end whose neighbours are checked.
+	 * @param q Index of the other end.
+	 * @param dist Distance between p and q.
+	 * @return True if the edge is discarded.
+	 */
+	private static boolean blocked(SingleLabelView view, NeighbourGraph witnesses, int p, int q,
+	                               double dist) {
+		int[] ids = witnesses.neighbours(p);
+		double[] dists = witnesses.distances(p);
+
+		for (int t = 0; t < ids.length && dists[t] < dist; t++)
+			if (view.distance(q, ids[t]) < dist)
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Returns whether every instance nearer to p than q is one of its nearest
+	 * neighbours: the list of p includes the ones tied with the last, or all
+	 * the other instances.
+	 *
+	 * @param witnesses Nearest neighbours of every instance.
+	 * @param p Index of the instance.
+	 * @param dist Distance between p and q.
+	 * @return True if the witnesses of p settle the edge.
+	 */
+	private static boolean settled(NeighbourGraph witnesses, int p, double dist) {
+		double[] dists = witnesses.distances(p);
+
+		return dists.length == witnesses.space().numInstances() - 1 ||
+		       (dists.length > 0 && dist <= dists[dists.length - 1]);
+	}
+
+	/**
+	 * Returns an instance in the lune of p and q, searched in a tree or
+	 * among all the instances.
+	 *
+	 * @param view View of the data set.
+	 * @param tree Tree over the space of the view (can be null).
+	 * @param p Index of the first end.
+	 * @param q Index of the second end.
+	 * @param dist Distance between p and q.
+	 * @return Index of the instance, -1 if the lune is empty.
+	 */
+	private static int lune(SingleLabelView view, KDTree tree, int p, int q, double dist) {
+		if (tree != null)
+			return tree.lune(view, p, q, dist);
+
+		for (int r = 0; r < view.numInstances(); r++)
+			if (r != p && r != q && view.distance(p, r) < dist && view.distance(q, r) < dist)
+				return r;
+
+		return -1;
+	}
+
+	/**
+	 * Sorts a range of indexes by their distances, ties by index (quicksort,
+	 * insertion sort for short ranges).
+	 *
+	 * @param order Indexes to sort.
+	 * @param dists Distance of every index.
+	 * @param from First position of the range.
+	 * @param to Last position of the range (exclusive).
+	 */
+	protected static void sort(int[] order, double[] dists, int from, int to) {
+		int i, j, tmp, pivot;
+
+		while (to - from > 16) {
+			pivot = order[(from + to) >>> 1];
+			i = from;
+			j = to - 1;
+
+			while (i <= j) {
+				while (before(order[i], pivot, dists))
+					i++;
+				while (before(pivot, order[j], dists))
+					j--;
+
+				if (i <= j) {
+					tmp = order[i];
+					order[i++] = order[j];
+					order[j--] = tmp;
+				}
+			}
+
+			// Recursion on the smaller part
+			if (j - from < to - i) {
+				sort(order, dists, from, j + 1);
+				from = i;
+			}
+			else {
+				sort(order, dists, i, to);
+				to = j + 1;
+			}
+		}
+
+		for (i = from + 1; i < to; i++) {
+			tmp = order[i];
+
+			for (j = i; j > from && before(tmp, order[j - 1], dists); j--)
+				order[j] = order[j - 1];
+
+			order[j] = tmp;
+		}
+	}
+
+	/**
+	 * Returns whether an index goes before another: it is nearer, or at the
+	 * same distance and lower.
+	 *
+	 * @param a First index.
+	 * @param b Second index.
+	 * @param dists Distance of every index.
+	 * @return True if a goes before b.
+	 */
+	private static boolean before(int a, int b, double[] dists) {
+
+		return dists[a] < dists[b] || (dists[a] == dists[b] && a < b);
+	}
+
+	/**
+	 * Returns the number of instances.
+	 *
+	 * @return Number of instances.
+	 */
+	public int numInstances() {
+
+		return m_Offsets.length - 1;
+	}
+
+	/**
+	 * Returns the number of undirected edges.
+	 *
+	 * @return Number of edges.
+	 */
+	public int numEdges() {
+
+		return m_Targets.length / 2;
+	}
+
+	/**
+	 * Returns the start of the adjacency list of an instance in targets(),
+	 * offset(i + 1) is its end (exclusive).
+	 *
+	 * @param i Index of the instance.
+	 * @return Start of the list.
+	 */
+	public int offset(int i) {
+
+		return m_Offsets[i];
+	}
+
+	/**
+	 * Returns the concatenated adjacency lists.
+	 *
+	 * @return Neighbours of every instance.
+	 */
+	public int[] targets() {
+
+		return m_Targets;
+	}
+}
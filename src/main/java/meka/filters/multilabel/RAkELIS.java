@@ -3,7 +3,9 @@ package meka.filters.multilabel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 import java.util.Vector;
@@ -56,13 +58,12 @@ public class RAkELIS extends BRIS {
 	protected int m_P = 0;
 
 	/**
-	 * Computes the votes using RAkEL-based IS.
+	 * Generates the label partitions, they only depend on the seed.
 	 * 
 	 * @param instances Instances to filter.
-	 * @param remove Array with votes for removal.
-	 * @throws Exception If something goes wrong.
+	 * @return Labels of every partition.
 	 */
-	protected void computeVotes(Instances instances, int[] remove) throws Exception {
+	protected int[][] generatePartitions(Instances instances) {
 		Random random = new Random(m_Seed);
 		int L = instances.classIndex();
 		int kMap[][];
@@ -72,10 +73,53 @@ public class RAkELIS extends BRIS {
 		kMap = SuperLabelUtils.generatePartition(A.make_sequence(L), num, random, true);
 		m_M = kMap.length;
 
+		return kMap;
+	}
+
+	@Override
+	protected int numUnits(Instances instances) throws Exception {
+
+		return generatePartitions(instances).length;
+	}
+
+	/**
+	 * Computes the votes using RAkEL-based IS.
+	 * 
+	 * @param instances Instances to filter.
+	 * @param remove Array with votes for removal.
+	 * @param from First partition to process.
+	 * @param to Last partition to process (exclusive).
+	 * @param checkpoint Checkpoint of the votes, can be null.
+	 * @throws Exception If something goes wrong.
+	 */
+	protected void computeVotes(Instances instances, int[] remove, int from, int to, 
+	                            VoteCheckpoint checkpoint) throws Exception {
+		startBudget();
+
+		int kMap[][] = generatePartitions(instances);
+
 		if (getDebug())
 			System.out.println("Building " + m_M + " models of " + m_K + " partitions:");
 
-		for (int i = 0; i < m_M; i++) {
+		int[] order = partitionOrder(instances, kMap);
+		int processed = 0, i;
+
+		for (int o = 0; o < order.length; o++) {
+			i = order[o];
+
+			if (i < from || i >= to)
+				continue;
+
+			// Partitions restored from the checkpoint
+			if (checkpoint != null && checkpoint.isDone(i)) {
+				processed++;
+				continue;
+			}
+
+			// Skip if there is no time for another partition
+			if (budgetExhausted())
+				continue;
+
 			if (getDebug())
 				System.out.println("\tpartitioning model " + (i + 1) + "/" + m_M + ": "
 				                   + Arrays.toString(kMap[i]) + ", P=" + m_P + ", N=" + m_N);
@@ -88,7 +132,76 @@ public class RAkELIS extends BRIS {
 				                   + Arrays.toString(kMap[i]));
 			
 			applyIS(D_i, remove);
+			processed++;
+			unitDone();
+
+			if (checkpoint != null)
+				checkpoint.done(i);
 		}
+
+		// The checkpoint keeps the unscaled votes in order to resume them
+		if (checkpoint != null)
+			checkpoint.save();
+
+		// Partial votes are scaled to the whole range
+		if (processed < to - from)
+			scaleVotes(remove, (double) (to - from) / processed);
+	}
+
+	/**
+	 * Returns the order in which the partitions are processed. With a time
+	 * budget, the partitions whose labelsets have higher entropy (more classes
+	 * and more balanced) go first, as they are the ones that give more votes.
+	 * 
+	 * @param instances Multi-label data set.
+	 * @param kMap Labels of every partition.
+	 * @return Indexes of the partitions in processing order.
+	 */
+	protected int[] partitionOrder(Instances instances, int[][] kMap) {
+		Integer[] order = new Integer[kMap.length];
+		final double[] entropy = new double[kMap.length];
+		int[] result = new int[kMap.length];
+		HashMap<String, Integer> counts = new HashMap<String, Integer>();
+		StringBuilder key = new StringBuilder();
+		Integer count;
+		double p;
+
+		for (int i = 0; i < kMap.length; i++) {
+			order[i] = i;
+
+			if (m_Budget <= 0)
+				continue;
+
+			counts.clear();
+
+			for (int n = 0; n < instances.numInstances(); n++) {
+				key.setLength(0);
+
+				for (int j : kMap[i])
+					key.append(instances.instance(n).value(j) == 1 ? '1' : '0');
+
+				count = counts.get(key.toString());
+				counts.put(key.toString(), count == null ? 1 : count + 1);
+			}
+
+			for (int c : counts.values()) {
+				p = (double) c / instances.numInstances();
+				entropy[i] -= p * Math.log(p);
+			}
+		}
+
+		// Stable sort, without budget the natural order is kept
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(entropy[b], entropy[a]);
+			}
+		});
+
+		for (int i = 0; i < kMap.length; i++)
+			result[i] = order[i];
+
+		return result;
 	}
 
 	@Override
@@ -0,0 +1,242 @@
+/*
+ * SingleLabelView.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.Arrays;
+import java.util.List;
+
+import weka.core.Instances;
+
+/**
+ * Single label problem over the instances of a feature space: the class of
+ * every instance and the distance between them.<br>
+ * In dependent binary relevance the other labels are features too, their
+ * contribution to the distance is taken from the label bitsets.
+ * <p>
+ *
+ * @version 20261018
+ */
+public class SingleLabelView {
+
+	/**
+	 * Feature space of the instances.
+	 */
+	protected FeatureSpace m_Space;
+
+	/**
+	 * Class of every instance.
+	 */
+	protected int[] m_Classes;
+
+	/**
+	 * Number of classes.
+	 */
+	protected int m_NumClasses;
+
+	/**
+	 * Label used as class, -1 if the classes don't come from a label.
+	 */
+	protected int m_Label = -1;
+
+	/**
+	 * Whether the other labels are features (dependent BR) or not.
+	 */
+	protected boolean m_UseLabels = false;
+
+	/**
+	 * Builds a view with the given classes.
+	 *
+	 * @param space Feature space.
+	 * @param classes Class of every instance.
+	 * @param numClasses Number of classes.
+	 */
+	public SingleLabelView(FeatureSpace space, int[] classes, int numClasses) {
+		m_Space = space;
+		m_Classes = classes;
+		m_NumClasses = numClasses;
+	}
+
+	/**
+	 * Builds the binary view of a label.
+	 *
+	 * @param space Feature space.
+	 * @param label Label used as class.
+	 * @param useLabels Whether the other labels are features or not.
+	 */
+	public SingleLabelView(FeatureSpace space, int label, boolean useLabels) {
+		this(space, space.labelColumn(label), 2);
+		m_Label = label;
+		m_UseLabels = useLabels;
+	}
+
+	/**
+	 * Builds the view of a single label data set.
+	 *
+	 * @param instances Data set with a nominal class.
+	 * @param normalize Whether normalise the features or not.
+	 */
+	public SingleLabelView(Instances instances, boolean normalize) {
+		this(new FeatureSpace(instances, new int[] { instances.classIndex() }, normalize),
+		     new int[instances.numInstances()], instances.numClasses());
+
+		for (int i = 0; i < m_Classes.length; i++)
+			m_Classes[i] = (int) instances.instance(i).classValue();
+	}
+
+	/**
+	 * Returns the feature space.
+	 *
+	 * @return Feature space.
+	 */
+	public FeatureSpace space() {
+
+		return m_Space;
+	}
+
+	/**
+	 * Returns the label used as class.
+	 *
+	 * @return Index of the label, -1 if the classes don't come from a label.
+	 */
+	public int label() {
+
+		return m_Label;
+	}
+
+	/**
+	 * Returns the number of instances.
+	 *
+	 * @return Number of instances.
+	 */
+	public int numInstances() {
+
+		return m_Classes.length;
+	}
+
+	/**
+	 * Returns the number of classes.
+	 *
+	 * @return Number of classes.
+	 */
+	public int numClasses() {
+
+		return m_NumClasses;
+	}
+
+	/**
+	 * Returns the class of an instance.
+	 *
+	 * @param i Index of the instance.
+	 * @return Class value.
+	 */
+	public int classValue(int i) {
+
+		return m_Classes[i];
+	}
+
+	/**
+	 * Returns the class of every instance.
+	 *
+	 * @return Class values.
+	 */
+	public int[] classes() {
+
+		return m_Classes;
+	}
+
+	/**
+	 * Returns the squared distance between two instances.
+	 *
+	 * @param a Index of the first instance.
+	 * @param b Index of the second instance.
+	 * @return Squared distance.
+	 */
+	public double distance(int a, int b) {
+		double dist = m_Space.featureDistance(a, b);
+
+		// The class label isn't part of the distance
+		if (m_UseLabels)
+			dist += m_Space.labelDistance(a, b) - (m_Classes[a] != m_Classes[b] ? 1 : 0);
+
+		return dist;
+	}
+
+	/**
+	 * Returns the k nearest neighbours of an instance sorted by distance. As
+	 * weka's LinearNNSearch, the instances tied with the k-th are also returned.
+	 *
+	 * @param target Index of the instance.
+	 * @param k Number of neighbours.
+	 * @param removed Instances that can't be neighbours (can be null).
+	 * @return Indexes of the neighbours.
+	 */
+	public int[] kNearestNeighbours(int target, int k, boolean[] removed) {
+		Neighbours nn = new Neighbours(k);
+
+		kNearestNeighbours(target, k, removed, nn);
+
+		return Arrays.copyOf(nn.ids(), nn.size());
+	}
+
+	/**
+	 * Finds the k nearest neighbours of an instance (and the ones tied with
+	 * the k-th) without allocating, the list is reused between queries.
+	 *
+	 * @param target Index of the instance.
+	 * @param k Number of neighbours.
+	 * @param removed Instances that can't be neighbours (can be null).
+	 * @param nn List where the neighbours are stored.
+	 */
+	public void kNearestNeighbours(int target, int k, boolean[] removed, Neighbours nn) {
+		nn.clear(k);
+
+		if (k < 1)
+			return;
+
+		for (int j = 0; j < numInstances(); j++) {
+			if (j == target || (removed != null && removed[j]))
+				continue;
+
+			nn.offer(j, distance(target, j));
+		}
+	}
+
+	/**
+	 * Returns the nearest neighbour of an instance among the candidates. Ties
+	 * are solved in favour of the first candidate.
+	 *
+	 * @param target Index of the instance.
+	 * @param candidates Indexes of the candidates.
+	 * @return Index of the nearest neighbour, -1 if there are no candidates.
+	 */
+	public int nearestNeighbour(int target, List<Integer> candidates) {
+		double min = Double.MAX_VALUE, dist;
+		int nearest = -1;
+
+		for (int j : candidates) {
+			dist = distance(target, j);
+
+			if (dist < min) {
+				min = dist;
+				nearest = j;
+			}
+		}
+
+		return nearest;
+	}
+}
@@ -0,0 +1,296 @@
+/*
+ * VoteCheckpoint.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Checkpoint of the vote accumulation of an IS method. It keeps the votes and
+ * the units of work (labels, partitions...) already done, so that a killed
+ * run can be resumed.
+ * <p>
+ * The file holds a magic number, the fingerprint of the data and the filter
+ * setup, the number of instances and units, the votes and the bitset of
+ * completed units. It is written to a temporary file that atomically
+ * replaces the previous one, hence a kill during the write leaves either the
+ * previous checkpoint or the new one.
+ *
+ * @version 20261018
+ */
+public class VoteCheckpoint {
+
+	/**
+	 * Magic number of the checkpoint files.
+	 */
+	protected static final int MAGIC = 0x4d4b4953;
+
+	/**
+	 * File of the checkpoint.
+	 */
+	protected File m_File;
+
+	/**
+	 * Fingerprint of the data and the filter setup.
+	 */
+	protected long m_Fingerprint;
+
+	/**
+	 * Votes for removal.
+	 */
+	protected int[] m_Votes;
+
+	/**
+	 * Number of units of work.
+	 */
+	protected int m_NumUnits;
+
+	/**
+	 * Completed units of work.
+	 */
+	protected BitSet m_Done;
+
+	/**
+	 * Minimum time between two writes (milliseconds).
+	 */
+	protected long m_Interval;
+
+	/**
+	 * Time of the last write.
+	 */
+	protected long m_LastSave;
+
+	/**
+	 * Whether the votes have been restored from the file or not.
+	 */
+	protected boolean m_Restored = false;
+
+	/**
+	 * Creates an empty checkpoint, the file is overwritten on the first write.
+	 *
+	 * @param file File of the checkpoint.
+	 * @param fingerprint Fingerprint of the data and the filter setup.
+	 * @param votes Array of votes, filled with the restored ones.
+	 * @param numUnits Number of units of work.
+	 * @param interval Minimum time between two writes in seconds.
+	 */
+	public VoteCheckpoint(File file, long fingerprint, int[] votes, int numUnits,
+	                      double interval) {
+		m_File = file;
+		m_Fingerprint = fingerprint;
+		m_Votes = votes;
+		m_NumUnits = numUnits;
+		m_Done = new BitSet(numUnits);
+		m_Interval = (long) (interval * 1000);
+		m_LastSave = System.currentTimeMillis();
+	}
+
+	/**
+	 * Opens a checkpoint. If the file holds a checkpoint of the same data and
+	 * setup, the votes and completed units are restored.
+	 *
+	 * @param file File of the checkpoint.
+	 * @param fingerprint Fingerprint of the data and the filter setup.
+	 * @param votes Array of votes, filled with the restored ones.
+	 * @param numUnits Number of units of work.
+	 * @param interval Minimum time between two writes in seconds.
+	 * @return The checkpoint, empty if the file doesn't exist, null if the 
+	 *         file doesn't match the data and setup.
+	 * @throws IOException If the file can't be read.
+	 */
+	public static VoteCheckpoint open(File file, long fingerprint, int[] votes, int numUnits,
+	                                  double interval) throws IOException {
+		VoteCheckpoint checkpoint = new VoteCheckpoint(file, fingerprint, votes, numUnits, interval);
+
+		if (file.exists() && !checkpoint.restore())
+			return null;
+
+		return checkpoint;
+	}
+
+	/**
+	 * Reads the checkpoint file.
+	 *
+	 * @return False if the file doesn't match the current data and setup.
+	 * @throws IOException If the file can't be read.
+	 */
+	protected boolean restore() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(m_File)));
+		int[] votes = new int[m_Votes.length];
+		long[] words;
+
+		try {
+			if (in.readInt() != MAGIC || in.readLong() != m_Fingerprint ||
+			      in.readInt() != m_Votes.length || in.readInt() != m_NumUnits)
+				return false;
+
+			for (int i = 0; i < votes.length; i++)
+				votes[i] = in.readInt();
+
+			words = new long[in.readInt()];
+
+			for (int w = 0; w < words.length; w++)
+				words[w] = in.readLong();
+		}
+		finally {
+			in.close();
+		}
+
+		System.arraycopy(votes, 0, m_Votes, 0, votes.length);
+		m_Done = BitSet.valueOf(words);
+		m_Restored = true;
+
+		return true;
+	}
+
+	/**
+	 * Returns whether or not the votes have been restored from the file.
+	 *
+	 * @return True if the file matched the data and setup.
+	 */
+	public boolean isRestored() {
+
+		return m_Restored;
+	}
+
+	/**
+	 * Writes the checkpoint file.
+	 *
+	 * @throws IOException If the file can't be written.
+	 */
+	public void save() throws IOException {
+		save(m_File);
+
+		m_LastSave = System.currentTimeMillis();
+	}
+
+	/**
+	 * Writes the checkpoint to another file, it replaces the file atomically.
+	 *
+	 * @param file File to write.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void save(File file) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		long[] words = m_Done.toLongArray();
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeLong(m_Fingerprint);
+			out.writeInt(m_Votes.length);
+			out.writeInt(m_NumUnits);
+
+			for (int v : m_Votes)
+				out.writeInt(v);
+
+			out.writeInt(words.length);
+
+			for (long w : words)
+				out.writeLong(w);
+		}
+		finally {
+			out.close();
+		}
+
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+		           StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns whether or not the unit of work has been done.
+	 *
+	 * @param unit Index of the unit.
+	 * @return True if it has been done.
+	 */
+	public boolean isDone(int unit) {
+
+		return m_Done.get(unit);
+	}
+
+	/**
+	 * Returns the number of units of work done.
+	 *
+	 * @return Number of units done.
+	 */
+	public int numDone() {
+
+		return m_Done.cardinality();
+	}
+
+	/**
+	 * Marks a unit of work as done, its votes must be already accumulated. The
+	 * checkpoint is written if the interval has elapsed.
+	 *
+	 * @param unit Index of the unit.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void done(int unit) throws IOException {
+		m_Done.set(unit);
+
+		if (System.currentTimeMillis() - m_LastSave >= m_Interval)
+			save();
+	}
+
+	/**
+	 * Removes the checkpoint file once all the work is done.
+	 */
+	public void finish() {
+		m_File.delete();
+	}
+
+	/**
+	 * Computes the fingerprint of a data set and a setup string.
+	 *
+	 * @param instances Data set.
+	 * @param setup Setup of the filter.
+	 * @return Fingerprint.
+	 */
+	public static long fingerprint(Instances instances, String setup) {
+		long hash = 0xcbf29ce484222325L;
+		Instance inst;
+
+		// FNV-1a over the setup and the values
+		for (int c = 0; c < setup.length(); c++)
+			hash = (hash ^ setup.charAt(c)) * 0x100000001b3L;
+
+		hash = (hash ^ instances.numAttributes()) * 0x100000001b3L;
+		hash = (hash ^ instances.classIndex()) * 0x100000001b3L;
+
+		for (int i = 0; i < instances.numInstances(); i++) {
+			inst = instances.instance(i);
+
+			for (int a = 0; a < inst.numAttributes(); a++)
+				hash = (hash ^ Double.doubleToLongBits(inst.value(a))) * 0x100000001b3L;
+		}
+
+		return hash;
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * VoteShard.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import weka.core.Instances;
+import weka.core.SerializationHelper;
+import weka.core.Utils;
+
+/**
+ * Task of a sharded vote computation: the votes of a range of units of work
+ * (labels, partitions) of an IS method over a data set. The data set is
+ * identified by its file and fingerprint, the IS method by its class name
+ * and options.
+ * <p>
+ * The main method is the worker: it takes the pending tasks of a directory,
+ * shared with the coordinator, and writes their partial votes as checkpoints.
+ * It can be run on other hosts through a shared filesystem:
+ * <pre>
+ * java meka.filters.multilabel.VoteShard &lt;dir&gt;
+ * </pre>
+ *
+ * @version 20261018
+ */
+public class VoteShard implements Serializable {
+
+	private static final long serialVersionUID = -2391659713466170862L;
+
+	/**
+	 * Suffix of the pending tasks.
+	 */
+	public static final String PENDING = ".ser";
+
+	/**
+	 * Suffix of the tasks taken by a worker.
+	 */
+	public static final String RUNNING = ".running";
+
+	/**
+	 * Suffix of the finished tasks.
+	 */
+	public static final String DONE = ".done";
+
+	/**
+	 * File of the serialized data set.
+	 */
+	protected String m_DataFile;
+
+	/**
+	 * Fingerprint of the data set and the setup.
+	 */
+	protected long m_Fingerprint;
+
+	/**
+	 * Class name of the IS method.
+	 */
+	protected String m_Selector;
+
+	/**
+	 * Options of the IS method.
+	 */
+	protected String[] m_Options;
+
+	/**
+	 * First unit of work.
+	 */
+	protected int m_From;
+
+	/**
+	 * Last unit of work (exclusive).
+	 */
+	protected int m_To;
+
+	/**
+	 * File for the partial votes.
+	 */
+	protected String m_VotesFile;
+
+	/**
+	 * Creates a task.
+	 *
+	 * @param dataFile File of the serialized data set.
+	 * @param fingerprint Fingerprint of the data set and the setup.
+	 * @param selector Class name of the IS method.
+	 * @param options Options of the IS method.
+	 * @param from First unit of work.
+	 * @param to Last unit of work (exclusive).
+	 * @param votesFile File for the partial votes.
+	 */
+	public VoteShard(String dataFile, long fingerprint, String selector, String[] options,
+	                 int from, int to, String votesFile) {
+		m_DataFile = dataFile;
+		m_Fingerprint = fingerprint;
+		m_Selector = selector;
+		m_Options = options;
+		m_From = from;
+		m_To = to;
+		m_VotesFile = votesFile;
+	}
+
+	/**
+	 * Computes the partial votes of the task. They are checkpointed in a
+	 * ".part" file, a killed task is resumed from it. When the task is done
+	 * the votes are written to the votes file, scaled to the whole range if
+	 * the time budget ran out. In that case the ".part" file, which holds the
+	 * unscaled votes, is kept to resume the task later.
+	 *
+	 * @throws Exception If the data doesn't match or the IS method fails.
+	 */
+	public void run() throws Exception {
+		Instances instances = (Instances) SerializationHelper.read(m_DataFile);
+		BRIS selector = (BRIS) Utils.forName(BRIS.class, m_Selector, m_Options.clone());
+		File part = new File(m_VotesFile + ".part");
+		VoteCheckpoint checkpoint;
+		int[] votes = new int[instances.numInstances()];
+
+		// The threads and budget of the worker aren't part of the setup
+		if (VoteCheckpoint.fingerprint(instances, selector.setupString(selector.setupOptions()))
+		      != m_Fingerprint)
+			throw new Exception("The data set or the setup don't match the task");
+
+		checkpoint = VoteCheckpoint.open(part, m_Fingerprint, votes, selector.numUnits(instances),
+		                                 selector.getCheckpointInterval());
+
+		// The partial votes of another task are overwritten
+		if (checkpoint == null) {
+			System.err.println("Partial votes " + part + " don't match the task, ignoring them");
+			checkpoint = new VoteCheckpoint(part, m_Fingerprint, votes, selector.numUnits(instances),
+			                                selector.getCheckpointInterval());
+		}
+
+		selector.computeVotes(instances, votes, m_From, m_To, checkpoint);
+
+		// The votes array holds the scaled votes of a partial run
+		checkpoint.save(new File(m_VotesFile));
+
+		if (!selector.partialVotes())
+			checkpoint.finish();
+	}
+
+	@Override
+	public String toString() {
+
+		return m_Selector + " " + Arrays.toString(m_Options) + " [" + m_From + ", " + m_To + ")";
+	}
+
+	/**
+	 * Worker: runs the pending tasks of a directory until there are none left.
+	 * A task is taken by renaming it, so several workers can share a directory.
+	 * The progress and the errors are written to the standard error, which the
+	 * local workers of the coordinator redirect to their log in the directory.
+	 *
+	 * @param args The directory of the tasks.
+	 */
+	public static void main(String[] args) {
+		File dir, running;
+		File[] tasks;
+		VoteShard shard;
+		String name;
+		boolean found = true;
+
+		if (args.length != 1) {
+			System.err.println("Usage: " + VoteShard.class.getName() + " <dir>");
+			System.exit(1);
+		}
+
+		dir = new File(args[0]);
+
+		while (found) {
+			found = false;
+			tasks = dir.listFiles();
+
+			if (tasks == null)
+				break;
+
+			Arrays.sort(tasks);
+
+			for (File task : tasks) {
+				if (!task.getName().startsWith("task-") || !task.getName().endsWith(PENDING))
+					continue;
+
+				name = task.getName().substring(0, task.getName().length() - PENDING.length());
+				running = new File(dir, name + RUNNING);
+
+				// Another worker took it
+				if (!task.renameTo(running))
+					continue;
+
+				found = true;
+
+				try {
+					shard = (VoteShard) SerializationHelper.read(running.getPath());
+					System.err.println("Running " + shard);
+					shard.run();
+					running.renameTo(new File(dir, name + DONE));
+				}
+				catch (Exception e) {
+					// Give the task back
+					running.renameTo(task);
+					e.printStackTrace(System.err);
+					System.exit(1);
+				}
+			}
+		}
+	}
+}
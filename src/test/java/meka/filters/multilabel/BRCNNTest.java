@@ -0,0 +1,115 @@
+/*
+ * BRCNNTest.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import weka.core.Instances;
+
+/**
+ * Checks CNN, whose nearest prototypes are cached and updated incrementally,
+ * against a plain implementation that restarts the scan after every
+ * addition.
+ *
+ * @version 20261018
+ */
+public class BRCNNTest {
+
+	/**
+	 * Plain CNN: an instance of each class, then the first instance
+	 * misclassified by the reduced set is added and the scan restarts.
+	 *
+	 * @param view View of the data set.
+	 * @return Selected instances.
+	 */
+	private static boolean[] reference(SingleLabelView view) {
+		boolean[] selected = new boolean[view.numInstances()];
+		List<Integer> reduced = new ArrayList<Integer>();
+		boolean[] seen = new boolean[view.numClasses()];
+		boolean added = true;
+
+		for (int i = 0; i < view.numInstances(); i++) {
+			if (!seen[view.classValue(i)]) {
+				seen[view.classValue(i)] = true;
+				selected[i] = true;
+				reduced.add(i);
+			}
+		}
+
+		while (added) {
+			added = false;
+
+			for (int i = 0; i < view.numInstances() && !added; i++) {
+				if (!selected[i] &&
+				    view.classValue(view.nearestNeighbour(i, reduced)) != view.classValue(i)) {
+					selected[i] = true;
+					reduced.add(i);
+					added = true;
+				}
+			}
+		}
+
+		return selected;
+	}
+
+	@Test
+	public void testIncrementalCondensing() throws Exception {
+		Instances instances = MultiLabelData.generate(200, 3, 4, 6);
+		FeatureSpace space = new FeatureSpace(instances, instances.classIndex(), true);
+		SingleLabelView view;
+
+		for (int j = 0; j < instances.classIndex(); j++) {
+			view = new SingleLabelView(space, j, false);
+
+			assertArrayEquals(reference(view), BRCNN.condense(view, 1));
+			assertArrayEquals(reference(view), BRCNN.condense(view, 3));
+		}
+	}
+
+	@Test
+	public void testBatchCondensingIsConsistent() throws Exception {
+		Instances instances = MultiLabelData.generate(200, 3, 4, 7);
+		FeatureSpace space = new FeatureSpace(instances, instances.classIndex(), true);
+		List<Integer> reduced = new ArrayList<Integer>();
+		SingleLabelView view;
+		boolean[] selected;
+
+		for (int j = 0; j < instances.classIndex(); j++) {
+			view = new SingleLabelView(space, j, false);
+			selected = BRCNN.batchCondense(view, 1);
+			reduced.clear();
+
+			for (int i = 0; i < selected.length; i++)
+				if (selected[i])
+					reduced.add(i);
+
+			// Every discarded instance is well classified by the reduced set
+			for (int i = 0; i < selected.length; i++)
+				if (!selected[i])
+					assertEquals(view.classValue(i), view.classValue(view.nearestNeighbour(i, reduced)));
+
+			assertArrayEquals(selected, BRCNN.batchCondense(view, 3));
+		}
+	}
+}
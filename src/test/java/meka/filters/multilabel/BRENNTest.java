@@ -0,0 +1,132 @@
+/*
+ * BRENNTest.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import weka.core.Instances;
+
+/**
+ * Checks sequential and batch ENN against a plain implementation, and the
+ * sweep of k against single batch runs.
+ *
+ * @version 20261018
+ */
+public class BRENNTest {
+
+	/**
+	 * Plain ENN: the neighbours of every instance are found by sorting the
+	 * distances to all the others, ties with the k-th included. The predicted
+	 * class is the most frequent one, the lowest in case of tie.
+	 *
+	 * @param view View of the data set.
+	 * @param k Number of nearest neighbours.
+	 * @param sequential Whether the removed instances stop being neighbours,
+	 *                   from the last instance to the first one, or not.
+	 * @return Removed instances.
+	 */
+	private static boolean[] reference(SingleLabelView view, int k, boolean sequential) {
+		int n = view.numInstances();
+		boolean[] removed = new boolean[n];
+		double[] dists = new double[n];
+		int[] counts;
+		int num, pred;
+
+		for (int i = n - 1; i >= 0; i--) {
+			num = 0;
+
+			for (int j = 0; j < n; j++)
+				if (j != i && !(sequential && removed[j]))
+					dists[num++] = view.distance(i, j);
+
+			if (num == 0)
+				continue;
+
+			Arrays.sort(dists, 0, num);
+			counts = new int[view.numClasses()];
+
+			for (int j = 0; j < n; j++)
+				if (j != i && !(sequential && removed[j]) &&
+				    view.distance(i, j) <= dists[Math.min(k, num) - 1])
+					counts[view.classValue(j)]++;
+
+			pred = 0;
+
+			for (int c = 1; c < counts.length; c++)
+				if (counts[c] > counts[pred])
+					pred = c;
+
+			removed[i] = pred != view.classValue(i);
+		}
+
+		return removed;
+	}
+
+	@Test
+	public void testSequentialEditing() throws Exception {
+		Instances instances = MultiLabelData.generate(150, 3, 4, 3);
+		FeatureSpace space = new FeatureSpace(instances, instances.classIndex(), true);
+		SingleLabelView view;
+
+		for (int j = 0; j < instances.classIndex(); j++) {
+			for (int k : new int[] { 1, 3, 4 }) {
+				view = new SingleLabelView(space, j, false);
+				assertArrayEquals(reference(view, k, true), BRENN.edit(view, k));
+			}
+		}
+	}
+
+	@Test
+	public void testBatchEditing() throws Exception {
+		Instances instances = MultiLabelData.generate(150, 3, 4, 4);
+		FeatureSpace space = new FeatureSpace(instances, instances.classIndex(), true);
+		SingleLabelView view;
+
+		for (int j = 0; j < instances.classIndex(); j++) {
+			for (boolean dependent : new boolean[] { false, true }) {
+				view = new SingleLabelView(space, j, dependent);
+
+				for (int k : new int[] { 1, 3, 4 })
+					assertArrayEquals(reference(view, k, false),
+					                  BRENN.batchEdit(new NeighbourGraph(view, k, 1), view.classes(),
+					                                  view.numClasses()));
+			}
+		}
+	}
+
+	@Test
+	public void testSweepMatchesBatchRuns() throws Exception {
+		Instances instances = MultiLabelData.generate(150, 3, 4, 5);
+		int[][] sweep = new BRENN().sweepVotes(instances, 5);
+		BRENN filter;
+		int[] votes;
+
+		for (int k = 1; k <= 5; k++) {
+			filter = new BRENN();
+			filter.setOptions(new String[] { "-W", "-K", "" + k });
+			votes = new int[instances.numInstances()];
+			filter.computeVotes(instances, votes);
+
+			assertArrayEquals("k=" + k, votes, sweep[k - 1]);
+		}
+	}
+}
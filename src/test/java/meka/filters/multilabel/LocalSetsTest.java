@@ -0,0 +1,89 @@
+/*
+ * LocalSetsTest.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import weka.core.Instances;
+
+/**
+ * Checks that the local sets searched in a k-d tree are the ones of the
+ * linear search.
+ *
+ * @version 20261018
+ */
+public class LocalSetsTest {
+
+	/**
+	 * Checks that two local sets are equal.
+	 *
+	 * @param expected Local sets of the linear search.
+	 * @param actual Local sets to check.
+	 */
+	private static void assertSame(LocalSets expected, LocalSets actual) {
+		assertArrayEquals(expected.enemies(), actual.enemies());
+		assertArrayEquals(expected.members(), actual.members());
+
+		for (int i = 0; i <= expected.numInstances(); i++)
+			assertEquals(expected.offset(i), actual.offset(i));
+	}
+
+	@Test
+	public void testTreeMatchesLinearSearch() throws Exception {
+		Instances instances = MultiLabelData.generate(250, 3, 4, 8);
+		LocalSets linear;
+		SingleLabelView view;
+
+		for (boolean normalize : new boolean[] { false, true }) {
+			FeatureSpace space = new FeatureSpace(instances, instances.classIndex(), normalize);
+			KDTree tree = KDTree.build(space);
+
+			assertTrue(tree != null);
+
+			for (int j = 0; j < instances.classIndex(); j++) {
+				for (boolean dependent : new boolean[] { false, true }) {
+					view = new SingleLabelView(space, j, dependent);
+					linear = new LocalSets(view, 1);
+
+					assertSame(linear, new LocalSets(view, tree, 1));
+					assertSame(linear, new LocalSets(view, tree, 3));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTreeMatchesLinearSelection() throws Exception {
+		Instances instances = MultiLabelData.generate(250, 3, 4, 9);
+		int[] linear = new int[instances.numInstances()];
+		int[] tree = new int[instances.numInstances()];
+		BRLSS filter = new BRLSS();
+
+		filter.setOptions(new String[] { "-N", "linear" });
+		filter.computeVotes(instances, linear);
+		filter = new BRLSS();
+		filter.setOptions(new String[] { "-N", "tree" });
+		filter.computeVotes(instances, tree);
+
+		assertArrayEquals(linear, tree);
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * MultiLabelData.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+/**
+ * Synthetic multi-label data sets for the tests. The labels go first, as in
+ * MEKA, and depend on the features plus some noise, so that the editing
+ * methods have instances to remove.
+ *
+ * @version 20261018
+ */
+final class MultiLabelData {
+
+	private MultiLabelData() {
+	}
+
+	/**
+	 * Generates a data set.
+	 *
+	 * @param numInstances Number of instances.
+	 * @param numFeatures Number of numeric features.
+	 * @param numLabels Number of labels.
+	 * @param seed Seed of the generator.
+	 * @return Data set, the class index is the number of labels.
+	 */
+	static Instances generate(int numInstances, int numFeatures, int numLabels, long seed) {
+		Random random = new Random(seed);
+		double[][] features = new double[numInstances][numFeatures];
+		int[][] labels = new int[numInstances][numLabels];
+		double sum;
+
+		for (int i = 0; i < numInstances; i++) {
+			for (int f = 0; f < numFeatures; f++)
+				features[i][f] = random.nextDouble();
+
+			// Every label is a noisy threshold over two features
+			for (int j = 0; j < numLabels; j++) {
+				sum = features[i][j % numFeatures] + features[i][(j + 1) % numFeatures];
+				labels[i][j] = (sum > 1) != (random.nextDouble() < 0.15) ? 1 : 0;
+			}
+		}
+
+		return build(features, labels);
+	}
+
+	/**
+	 * Builds a data set from its features and labels.
+	 *
+	 * @param features Features of every instance.
+	 * @param labels Labels (0 or 1) of every instance.
+	 * @return Data set, the class index is the number of labels.
+	 */
+	static Instances build(double[][] features, int[][] labels) {
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+		ArrayList<String> values = new ArrayList<String>();
+		int numLabels = labels[0].length, numFeatures = features[0].length;
+		Instances instances;
+		double[] row;
+
+		values.add("0");
+		values.add("1");
+
+		for (int j = 0; j < numLabels; j++)
+			attributes.add(new Attribute("L" + j, values));
+
+		for (int f = 0; f < numFeatures; f++)
+			attributes.add(new Attribute("F" + f));
+
+		instances = new Instances("test: -C " + numLabels, attributes, features.length);
+
+		for (int i = 0; i < features.length; i++) {
+			row = new double[numLabels + numFeatures];
+
+			for (int j = 0; j < numLabels; j++)
+				row[j] = labels[i][j];
+
+			System.arraycopy(features[i], 0, row, numLabels, numFeatures);
+			instances.add(new DenseInstance(1.0, row));
+		}
+
+		instances.setClassIndex(numLabels);
+
+		return instances;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * ShardedVotesTest.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import weka.core.Instances;
+
+/**
+ * Checks that the votes sharded across worker processes are the ones of a
+ * single process.
+ *
+ * @version 20261018
+ */
+public class ShardedVotesTest {
+
+	/**
+	 * Computes the votes of BR ENN.
+	 *
+	 * @param instances Data set.
+	 * @param options Options of the filter.
+	 * @return Votes for removal.
+	 * @throws Exception If the filter fails.
+	 */
+	private static int[] votes(Instances instances, String... options) throws Exception {
+		BRENN filter = new BRENN();
+		int[] remove = new int[instances.numInstances()];
+
+		filter.setOptions(options);
+		filter.computeVotes(instances, remove);
+
+		return remove;
+	}
+
+	/**
+	 * Computes the votes in a new shard directory, removed afterwards.
+	 *
+	 * @param instances Data set.
+	 * @param options Options of the filter, without the directory.
+	 * @return Votes for removal.
+	 * @throws Exception If the filter fails.
+	 */
+	private static int[] shardedVotes(Instances instances, String... options) throws Exception {
+		File dir = Files.createTempDirectory("bris-test").toFile();
+		String[] all = new String[options.length + 2];
+
+		System.arraycopy(options, 0, all, 0, options.length);
+		all[options.length] = "-H";
+		all[options.length + 1] = dir.getPath();
+
+		try {
+			return votes(instances, all);
+		}
+		finally {
+			for (File f : dir.listFiles())
+				f.delete();
+
+			dir.delete();
+		}
+	}
+
+	@Test
+	public void testShardsMatchSingleProcess() throws Exception {
+		Instances instances = MultiLabelData.generate(120, 4, 5, 1);
+
+		assertArrayEquals(votes(instances), shardedVotes(instances, "-J", "2"));
+	}
+
+	@Test
+	public void testBudgetedShardsAreScaled() throws Exception {
+		Instances base = MultiLabelData.generate(120, 4, 1, 2);
+		double[][] features = new double[base.numInstances()][4];
+		int[][] labels = new int[base.numInstances()][4];
+		Instances instances;
+		int[] single, sharded;
+		int sum = 0;
+
+		// Labels L, not L, L, not L: both columns give the same votes and
+		// the second shard only has repetitions, hence the budget of a single
+		// label gives the same scaled votes with one or two shards
+		for (int i = 0; i < base.numInstances(); i++) {
+			for (int f = 0; f < 4; f++)
+				features[i][f] = base.instance(i).value(1 + f);
+
+			labels[i][0] = labels[i][2] = (int) base.instance(i).value(0);
+			labels[i][1] = labels[i][3] = 1 - labels[i][0];
+		}
+
+		instances = MultiLabelData.build(features, labels);
+		single = votes(instances, "-B", "1e-9");
+		sharded = shardedVotes(instances, "-B", "1e-9", "-J", "2");
+
+		for (int v : single)
+			sum += v;
+
+		assertTrue("The budget should leave some votes", sum > 0);
+		assertArrayEquals(single, sharded);
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * ThreadsTest.java
+ * Copyright (C) 2026 Burgos University, Burgos, Spain
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package meka.filters.multilabel;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import weka.core.Instances;
+import weka.core.OptionHandler;
+import weka.core.Utils;
+
+/**
+ * Checks that the selections don't depend on the number of threads.
+ *
+ * @version 20261018
+ */
+public class ThreadsTest {
+
+	/**
+	 * Setups of the filters, the number of threads is added to them.
+	 */
+	private static final String[][] SETUPS = {
+		{ "BRENN", "-W" },
+		{ "BRENN", "-W", "-D" },
+		{ "BRCNN", "-W" },
+		{ "BRFCNN" },
+		{ "BRAllKNN" },
+		{ "BRRENN" },
+		{ "BRRNGE", "-O", "2", "-G", "exact" },
+		{ "BRRNGE", "-G", "approx" },
+		{ "BRLSS", "-N", "tree" },
+		{ "BRLSBo" },
+		{ "LPENN", "-W" },
+		{ "LPCNN" },
+		{ "LPFCNN" },
+		{ "LPRNGE", "-O", "2", "-G", "exact" },
+		{ "LPLSS", "-N", "tree" },
+		{ "LPLSBo" },
+	};
+
+	/**
+	 * Computes the votes of a BR filter, or the selection of an LP one.
+	 *
+	 * @param instances Data set.
+	 * @param setup Class name (in this package) and options of the filter.
+	 * @param threads Number of threads.
+	 * @return Votes for removal, or 1 for the removed instances.
+	 * @throws Exception If the filter fails.
+	 */
+	private static int[] select(Instances instances, String[] setup, int threads)
+	                               throws Exception {
+		Object filter = Class.forName("meka.filters.multilabel." + setup[0])
+		                     .getDeclaredConstructor().newInstance();
+		String[] options = new String[setup.length + 1];
+		int[] result = new int[instances.numInstances()];
+		boolean[] selected;
+
+		System.arraycopy(setup, 1, options, 0, setup.length - 1);
+		options[setup.length - 1] = "-T";
+		options[setup.length] = "" + threads;
+		((OptionHandler) filter).setOptions(options);
+
+		if (filter instanceof BRIS) {
+			((BRIS) filter).computeVotes(instances, result);
+		}
+		else {
+			selected = ((LPIS) filter).applyIS(instances);
+
+			for (int i = 0; i < result.length; i++)
+				result[i] = selected[i] ? 0 : 1;
+		}
+
+		return result;
+	}
+
+	@Test
+	public void testSelections() throws Exception {
+		Instances instances = MultiLabelData.generate(200, 4, 5, 10);
+
+		for (String[] setup : SETUPS)
+			assertArrayEquals(Utils.arrayToString(setup), select(instances, setup, 1),
+			                  select(instances, setup, 4));
+	}
+
+	@Test
+	public void testNeighbourGraph() throws Exception {
+		Instances instances = MultiLabelData.generate(200, 4, 5, 11);
+		FeatureSpace space = new FeatureSpace(instances, instances.classIndex(), true);
+		SingleLabelView view = new SingleLabelView(space, 0, true);
+		NeighbourGraph single = new NeighbourGraph(view, 5, 1);
+		NeighbourGraph parallel = new NeighbourGraph(view, 5, 4);
+
+		for (int i = 0; i < view.numInstances(); i++) {
+			assertArrayEquals(single.neighbours(i), parallel.neighbours(i));
+			assertArrayEquals(single.distances(i), parallel.distances(i), 0);
+		}
+	}
+}